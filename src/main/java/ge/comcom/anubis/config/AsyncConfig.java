@@ -10,18 +10,33 @@ import java.util.concurrent.Executor;
 @EnableAsync
 public class AsyncConfig {
 
-    // is not used for the moment
-    @Bean(name = "fullTextSearchExecutor")
-    public Executor fullTextSearchExecutor() {
+    // общий пул для @Async-методов
+    @Bean(name = "taskExecutor")
+    public Executor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);           // минимальное кол-во потоков
         executor.setMaxPoolSize(5);            // максимум (при нагрузке)
         executor.setQueueCapacity(100);        // очередь задач
-        executor.setThreadNamePrefix("FTS-");  // префикс имени потока
+        executor.setThreadNamePrefix("Async-");
         executor.setRejectedExecutionHandler(
                 new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy()
         );
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    // воркеры очереди индексации (IndexJobWorker): по одному потоку на воркер
+    @Bean(name = "fullTextSearchExecutor")
+    public Executor fullTextSearchExecutor(IndexQueueProperties indexQueueProperties) {
+        int workers = Math.max(1, indexQueueProperties.getWorkers());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("FTS-");  // префикс имени потока
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds((int) indexQueueProperties.getShutdownTimeout().toSeconds());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import org.springframework.util.unit.DataSize;
+
 import java.time.Duration;
 
 /**
@@ -23,6 +25,12 @@ public class DocumentPreviewProperties {
 
     private final Gotenberg gotenberg = new Gotenberg();
 
+    private final Image image = new Image();
+
+    private final Linearize linearize = new Linearize();
+
+    private final Cache cache = new Cache();
+
     @Getter
     @Setter
     public static class Gotenberg {
@@ -41,5 +49,65 @@ public class DocumentPreviewProperties {
          */
         private Duration readTimeout = Duration.ofSeconds(60);
     }
-}
 
+    @Getter
+    @Setter
+    public static class Image {
+        /**
+         * Максимальная сторона страницы превью в пикселях.
+         * Более крупные изображения декодируются с субдискретизацией.
+         */
+        private int maxDimension = 3000;
+
+        /**
+         * Максимальное число страниц многостраничного TIFF в превью.
+         */
+        private int maxPages = 500;
+
+        /**
+         * Объём оперативной памяти для буферов PDFBox на одну конвертацию;
+         * всё, что больше, выгружается во временный файл.
+         */
+        private DataSize maxMainMemory = DataSize.ofMegabytes(32);
+    }
+
+    @Getter
+    @Setter
+    public static class Linearize {
+        /**
+         * Линеаризация («fast web view») PDF-превью через qpdf.
+         */
+        private boolean enabled = true;
+
+        /**
+         * PDF меньше этого размера отдаются как есть — выигрыш от линеаризации незаметен.
+         */
+        private DataSize threshold = DataSize.ofMegabytes(1);
+
+        /**
+         * Путь к исполняемому файлу qpdf.
+         */
+        private String qpdfPath = "qpdf";
+
+        /**
+         * Максимальное время работы qpdf на один документ.
+         */
+        private Duration timeout = Duration.ofSeconds(60);
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        /**
+         * Кэш построенных PDF-превью по sha256: запросы частей (Range) не строят превью заново.
+         */
+        private boolean enabled = true;
+
+        private int maxEntries = 64;
+
+        /**
+         * Предел суммарного размера превью в памяти.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+    }
+}
@@ -0,0 +1,56 @@
+package ge.comcom.anubis.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Настройки очереди индексации (таблица index_job).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "anubis.index-queue")
+@Getter
+@Setter
+public class IndexQueueProperties {
+    private boolean enabled = true;
+
+    /**
+     * Количество воркеров. Параллельные обращения к OCR-шлюзу ограничивает адаптивный лимит
+     * ({@code anubis.ocr.concurrency}), воркеров должно быть не меньше его {@code max-limit}.
+     */
+    private int workers = 8;
+    private Duration pollInterval = Duration.ofSeconds(2);
+
+    private int maxAttempts = 5;
+    private Duration initialBackoff = Duration.ofSeconds(30);
+    private Duration maxBackoff = Duration.ofMinutes(30);
+
+    /** Аренда RUNNING-задачи; по истечении задачу подхватит другой воркер (например, после падения узла). */
+    private Duration lease = Duration.ofMinutes(15);
+
+    /** Сколько ждать завершения текущих задач при остановке приложения. */
+    private Duration shutdownTimeout = Duration.ofSeconds(60);
+
+    private Reindex reindex = new Reindex();
+
+    /**
+     * Массовая переиндексация: обход object_file страницами по file_id.
+     */
+    @Getter
+    @Setter
+    public static class Reindex {
+        private int pageSize = 500;
+
+        /** Сколько страниц одновременно находится в очереди. */
+        private int parallelPages = 4;
+
+        /**
+         * Через сколько без отметки владельца прогон считается брошенным: другой экземпляр приложения
+         * продолжает его с контрольной точки.
+         */
+        private Duration ownerTimeout = Duration.ofMinutes(2);
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 
@@ -18,6 +19,7 @@ public class OcrProperties {
 
     private Duration connectTimeout = Duration.ofSeconds(5);
     private Duration readTimeout = Duration.ofSeconds(60);
+    private Duration writeTimeout = Duration.ofSeconds(60);
     private Duration requestTimeout = Duration.ofSeconds(90);
 
     private boolean autoStartContainer = true;
@@ -25,4 +27,48 @@ public class OcrProperties {
     private String dockerComposeService = "ocr-gateway";
     private Duration readinessTimeout = Duration.ofSeconds(120);
     private Duration healthCheckInterval = Duration.ofSeconds(2);
+
+    private Concurrency concurrency = new Concurrency();
+    private Pool pool = new Pool();
+
+    /**
+     * Адаптивный лимит одновременных запросов к OCR-шлюзу (AIMD): лимит растёт на единицу,
+     * пока ответы быстрые, уменьшается на единицу при росте задержки и в {@code backoff-ratio} раз при ошибках.
+     */
+    @Getter
+    @Setter
+    public static class Concurrency {
+        private int initialLimit = 2;
+        private int minLimit = 1;
+
+        /** Верхняя граница; воркеров очереди индексации должно быть не меньше. */
+        private int maxLimit = 8;
+
+        private double backoffRatio = 0.5;
+
+        /** Во сколько раз задержка на байт может превысить базовую, прежде чем лимит начнёт снижаться. */
+        private double latencyTolerance = 2.0;
+
+        /** За сколько успешных ответов базовая задержка без обновления вырастает примерно в e раз. */
+        private int baselineWindow = 100;
+
+        /** Меньшие тела считаются этого размера: у маленьких документов задержка — в основном накладные расходы. */
+        private DataSize sizeFloor = DataSize.ofKilobytes(256);
+
+        /** Сколько запрос может ждать свободного места в лимите. */
+        private Duration acquireTimeout = Duration.ofSeconds(90);
+    }
+
+    /**
+     * Пул HTTP-соединений к OCR-шлюзу.
+     */
+    @Getter
+    @Setter
+    public static class Pool {
+        private int maxConnections = 16;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(30);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInterval = Duration.ofSeconds(60);
+    }
 }
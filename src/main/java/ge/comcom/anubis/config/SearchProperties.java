@@ -0,0 +1,82 @@
+package ge.comcom.anubis.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Настройки полнотекстового поиска (/api/search).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "anubis.search")
+@Getter
+@Setter
+public class SearchProperties {
+    private int defaultPageSize = 20;
+    private int maxPageSize = 100;
+
+    /** Подсчёт общего числа результатов останавливается на этом значении. */
+    private int countLimit = 1000;
+
+    /** Параметры ts_headline для фрагментов текста. */
+    private String headlineOptions = "MaxFragments=2, MinWords=5, MaxWords=25, FragmentDelimiter=\" … \", StartSel=<mark>, StopSel=</mark>";
+
+    /** Сколько значений возвращать в каждом фасете по умолчанию и максимум. */
+    private int facetLimit = 10;
+    private int maxFacetLimit = 100;
+
+    private Autocomplete autocomplete = new Autocomplete();
+    private QueryCache queryCache = new QueryCache();
+
+    /**
+     * Автодополнение (/api/search/suggest): словарь терминов из ts_stat в памяти.
+     */
+    @Getter
+    @Setter
+    public static class Autocomplete {
+        private boolean enabled = true;
+
+        /** Добавление терминов из фрагментов и поисковых документов, записанных после прошлого обновления. */
+        private Duration refreshInterval = Duration.ofMinutes(1);
+
+        /** Полная пересборка: убирает термины удалённых текстов и выравнивает частоты. */
+        private Duration rebuildInterval = Duration.ofHours(6);
+
+        /**
+         * Насколько фиксация транзакции может отстать от записи строки индекса (самая долгая транзакция
+         * индексации); это окно перед границей прошлого обновления просматривается повторно.
+         */
+        private Duration commitLag = Duration.ofMinutes(15);
+
+        /** Сколько самых частых терминов держать в памяти. */
+        private int maxTerms = 200_000;
+
+        private int minPrefixLength = 2;
+        private int defaultLimit = 10;
+        private int maxLimit = 50;
+    }
+
+    /**
+     * Кэш найденных version_id по нормализованному запросу; сбрасывается при записи в поисковый индекс.
+     */
+    @Getter
+    @Setter
+    public static class QueryCache {
+        private boolean enabled = true;
+        private int maxEntries = 512;
+
+        /** Предел суммарного размера сжатых множеств в памяти. */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Как часто проверяется общее поколение индекса: записи в индекс на других экземплярах
+         * становятся видны в кэше не позже чем через этот интервал.
+         */
+        private Duration syncInterval = Duration.ofSeconds(2);
+    }
+}
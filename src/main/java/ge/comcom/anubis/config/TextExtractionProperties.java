@@ -0,0 +1,45 @@
+package ge.comcom.anubis.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Извлечение текста внутри приложения (Apache Tika, PDFBox) без обращения к OCR-шлюзу.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "anubis.text-extraction")
+@Getter
+@Setter
+public class TextExtractionProperties {
+    /** Выключено — весь текст извлекает OCR-шлюз, как раньше. */
+    private boolean localEnabled = true;
+
+    /** Максимальная длина извлечённого текста в символах; остаток отбрасывается. */
+    private int maxTextLength = 10_000_000;
+
+    /** Сколько непробельных символов должно быть на странице PDF, чтобы считать её текстовой. */
+    private int minPageTextChars = 32;
+
+    /** Максимальный размер фрагмента текста для поиска (binary_text_chunk), в символах. */
+    private int chunkSize = 16_000;
+
+    private Pdf pdf = new Pdf();
+
+    /**
+     * OCR отдельных страниц PDF без текстового слоя.
+     */
+    @Getter
+    @Setter
+    public static class Pdf {
+        /** Разрешение, с которым страница рендерится для OCR. */
+        private float ocrDpi = 300f;
+
+        /** Сколько страниц одного документа распознаётся одновременно (общий предел задаёт лимит OCR-клиента). */
+        private int ocrParallelism = 4;
+
+        /** Страницы без текстового слоя сверх этого числа не распознаются. */
+        private int maxOcrPages = 500;
+    }
+}
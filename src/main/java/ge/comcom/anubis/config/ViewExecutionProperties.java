@@ -0,0 +1,72 @@
+package ge.comcom.anubis.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Настройки выполнения сохранённых представлений (/api/v1/views/{id}/execute).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "anubis.views")
+@Getter
+@Setter
+public class ViewExecutionProperties {
+    private int defaultPageSize = 100;
+    private int maxPageSize = 1000;
+
+    /** Подсчёт общего числа результатов останавливается на этом значении. */
+    private int countLimit = 10_000;
+
+    /** Сколько групп одного уровня группировки возвращается по умолчанию и максимум. */
+    private int defaultGroupLimit = 500;
+    private int maxGroupLimit = 5000;
+
+    /**
+     * Как часто скомпилированный запрос представления сверяется с его updated_at. Изменения на этом
+     * экземпляре сбрасывают запрос сразу, на других — не позже чем через этот интервал.
+     */
+    private Duration compiledRecheckInterval = Duration.ofSeconds(30);
+
+    private ResultCache resultCache = new ResultCache();
+    private Export export = new Export();
+
+    /**
+     * Кэш результатов представлений: view_id + хэш фильтра + набор читаемых ACL → version_id.
+     */
+    @Getter
+    @Setter
+    public static class ResultCache {
+        private boolean enabled = true;
+        private int maxEntries = 1024;
+
+        /** Предел суммарного размера сжатых множеств в памяти. */
+        private DataSize maxSize = DataSize.ofMegabytes(128);
+
+        /**
+         * Сколько самых используемых результатов, которых нет в кэше, считается в фоне за один проход.
+         * Запросы страниц полный результат не считают: они ждут прогрева и пока читают страницы запросом.
+         */
+        private int warmTop = 20;
+        private Duration warmInterval = Duration.ofSeconds(10);
+    }
+
+    /**
+     * Выгрузка представления (/api/v1/views/{id}/export): строки читаются курсором порциями по fetch-size.
+     */
+    @Getter
+    @Setter
+    public static class Export {
+        private int fetchSize = 1000;
+
+        /** Сколько строк XLSX держится в памяти; остальные сбрасываются во временный файл. */
+        private int xlsxWindowRows = 100;
+
+        /** Сколько свойств можно выгрузить столбцами за раз. */
+        private int maxColumns = 200;
+    }
+}
@@ -133,7 +133,7 @@ public class FileController {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentDisposition(contentDisposition);
             headers.setContentType(preview.mediaType()); // Critical: uses correct MIME
-            headers.setContentLength(preview.content().length);
+            // Content-Length и Range (206) выставляет Spring для Resource — линеаризованный PDF читается частями
 
             return ResponseEntity.ok()
                     .headers(headers)
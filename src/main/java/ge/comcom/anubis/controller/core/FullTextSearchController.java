@@ -1,6 +1,14 @@
 package ge.comcom.anubis.controller.core;
 
+import ge.comcom.anubis.dto.FacetDto;
+import ge.comcom.anubis.dto.SearchResultPageDto;
+import ge.comcom.anubis.dto.SearchSuggestionDto;
+import ge.comcom.anubis.enums.ReindexMode;
+import ge.comcom.anubis.enums.SearchScope;
+import ge.comcom.anubis.service.core.BulkReindexService;
+import ge.comcom.anubis.service.core.BulkReindexService.ReindexProgress;
 import ge.comcom.anubis.service.core.FullTextSearchService;
+import ge.comcom.anubis.service.core.SearchLexiconService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -16,57 +24,131 @@ import java.util.Set;
 public class FullTextSearchController {
 
     private final FullTextSearchService searchService;
+    private final BulkReindexService bulkReindexService;
+    private final SearchLexiconService searchLexiconService;
 
     /**
-     * Поиск по содержимому (OCR + текстовые документы).
+     * Поиск по содержимому (OCR + текстовые документы). Имя объекта и значения свойств учитываются
+     * только при явном {@code scope=METADATA} или {@code scope=ALL}.
      *
      * Пример:
      *   GET /api/search?q=договор
+     *   GET /api/search?q=договор&scope=ALL
      */
     @GetMapping
-    public ResponseEntity<Set<Long>> search(@RequestParam("q") String query) {
-        log.info("🔍 Search request: '{}'", query);
-        Set<Long> results = searchService.findMatchingVersionIds(query);
+    public ResponseEntity<Set<Long>> search(@RequestParam("q") String query,
+                                            @RequestParam(defaultValue = "CONTENT") SearchScope scope) {
+        log.info("🔍 Search request: '{}' (scope={})", query, scope);
+        Set<Long> results = searchService.findMatchingVersionIds(query, scope);
         return ResponseEntity.ok(results);
     }
 
     /**
-     * Запуск полной переиндексации (асинхронно).
+     * Ранжированный поиск: страница объектов по релевантности с фрагментами текста.
+     * Возвращаются только объекты, версию которых {@code userId} может читать.
+     * {@code scope} — CONTENT (текст файлов), METADATA (имя и свойства) или ALL (по умолчанию).
+     * {@code total=true} — дополнительно посчитать число результатов (с ограничением сверху).
      *
      * Пример:
-     *   POST /api/search/reindex
+     *   GET /api/search/ranked?q=договор&userId=7&scope=ALL&limit=20&offset=40&total=true
+     */
+    @GetMapping("/ranked")
+    public ResponseEntity<SearchResultPageDto> searchRanked(@RequestParam("q") String query,
+                                                            @RequestParam("userId") Long userId,
+                                                            @RequestParam(defaultValue = "ALL") SearchScope scope,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            @RequestParam(defaultValue = "0") int offset,
+                                                            @RequestParam(defaultValue = "false") boolean total) {
+        log.info("🔍 Ranked search request: '{}' (user={}, scope={}, offset={}, limit={})",
+                query, userId, scope, offset, limit);
+        return ResponseEntity.ok(searchService.searchRanked(query, userId, scope, limit, offset, total));
+    }
+
+    /**
+     * Фасеты ранжированного поиска: число найденных объектов по типу, классу и элементам
+     * VALUELIST-свойств из {@code propertyDefIds}; {@code limit} — значений в каждом фасете.
+     * Считаются только объекты, доступные {@code userId} на чтение.
+     *
+     * Пример:
+     *   GET /api/search/facets?q=договор&userId=7&propertyDefIds=12,15&limit=10
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<List<FacetDto>> facets(@RequestParam("q") String query,
+                                                 @RequestParam("userId") Long userId,
+                                                 @RequestParam(defaultValue = "ALL") SearchScope scope,
+                                                 @RequestParam(required = false) List<Long> propertyDefIds,
+                                                 @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(searchService.searchFacets(query, userId, scope, propertyDefIds, limit));
+    }
+
+    /**
+     * Автодополнение последнего слова запроса по словарю терминов в памяти. Предлагаются только термины,
+     * которые встречаются в документах, доступных {@code userId} на чтение.
+     *
+     * Пример:
+     *   GET /api/search/suggest?q=договор по&userId=7&limit=10
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SearchSuggestionDto>> suggest(@RequestParam("q") String query,
+                                                             @RequestParam("userId") Long userId,
+                                                             @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(searchLexiconService.suggest(query, userId, limit));
+    }
+
+    /**
+     * Запуск полной переиндексации (асинхронно, постранично, с контрольной точкой).
+     * Если переиндексация уже идёт, возвращает её прогресс.
+     * {@code force=true} — выполнить OCR заново, не используя сохранённый текст (например, после обновления моделей).
+     *
+     * Пример:
+     *   POST /api/search/reindex?force=true
      */
     @PostMapping("/reindex")
-    public ResponseEntity<String> reindexAll() {
-        log.info("♻️ Starting full reindex...");
-        searchService.reindexAll();
-        return ResponseEntity.accepted().body("Reindexing started");
+    public ResponseEntity<ReindexProgress> reindexAll(@RequestParam(defaultValue = "false") boolean force) {
+        log.info("♻️ Starting full reindex (force={})...", force);
+        return ResponseEntity.accepted().body(bulkReindexService.start(ReindexMode.ALL, force));
     }
 
     @PostMapping("/reindex/ocr")
-    public ResponseEntity<String> reindexOcrCandidates() {
-        log.info("♻️ Starting OCR-focused reindex...");
-        searchService.reindexOcrCandidates();
-        return ResponseEntity.accepted().body("OCR reindex started");
+    public ResponseEntity<ReindexProgress> reindexOcrCandidates(@RequestParam(defaultValue = "false") boolean force) {
+        log.info("♻️ Starting OCR-focused reindex (force={})...", force);
+        return ResponseEntity.accepted().body(bulkReindexService.start(ReindexMode.OCR, force));
     }
 
     @PostMapping("/reindex/missing")
-    public ResponseEntity<String> indexMissing() {
+    public ResponseEntity<ReindexProgress> indexMissing() {
         log.info("♻️ Indexing versions without cached text...");
-        searchService.indexMissing();
-        return ResponseEntity.accepted().body("Indexing of missing entries started");
+        return ResponseEntity.accepted().body(bulkReindexService.start(ReindexMode.MISSING, false));
+    }
+
+    /**
+     * Прогресс текущей массовой переиндексации (обработано, всего, ETA).
+     *
+     * Пример:
+     *   GET /api/search/reindex/progress
+     */
+    @GetMapping("/reindex/progress")
+    public ResponseEntity<ReindexProgress> reindexProgress() {
+        return ResponseEntity.ok(bulkReindexService.progress());
+    }
+
+    @PostMapping("/reindex/cancel")
+    public ResponseEntity<ReindexProgress> cancelReindex() {
+        log.info("⏹ Cancelling bulk reindex");
+        return ResponseEntity.ok(bulkReindexService.cancel());
     }
 
     /**
      * Переиндексация конкретного объекта по его версии.
      *
      * Пример:
-     *   POST /api/search/reindex/42
+     *   POST /api/search/reindex/42?force=true
      */
     @PostMapping("/reindex/{versionId}")
-    public ResponseEntity<String> reindexSingle(@PathVariable Long versionId) {
-        log.info("♻️ Reindexing version {}", versionId);
-        searchService.reindexSingle(versionId);
+    public ResponseEntity<String> reindexSingle(@PathVariable Long versionId,
+                                                @RequestParam(defaultValue = "false") boolean force) {
+        log.info("♻️ Reindexing version {} (force={})", versionId, force);
+        searchService.reindexSingle(versionId, force);
         return ResponseEntity.accepted()
                 .body("Reindex for version " + versionId + " started");
     }
@@ -1,19 +1,30 @@
 package ge.comcom.anubis.controller.core;
 
+import ge.comcom.anubis.dto.FacetDto;
 import ge.comcom.anubis.dto.ObjectVersionDto;
 import ge.comcom.anubis.dto.ObjectViewDto;
-import ge.comcom.anubis.entity.core.ObjectVersionEntity;
+import ge.comcom.anubis.dto.ObjectViewPageDto;
+import ge.comcom.anubis.dto.ViewGroupLevelDto;
+import ge.comcom.anubis.entity.meta.PropertyDef;
+import ge.comcom.anubis.enums.ExportFormat;
 import ge.comcom.anubis.service.view.ObjectViewExecutionService;
 import ge.comcom.anubis.service.view.ObjectViewService;
+import ge.comcom.anubis.service.view.ViewExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -32,6 +43,7 @@ public class ObjectViewController {
 
     private final ObjectViewService service;
     private final ObjectViewExecutionService executionService;
+    private final ViewExportService exportService;
 
     // ============================================================
     // CRUD OPERATIONS
@@ -102,6 +114,7 @@ public class ObjectViewController {
      * This operation behaves like opening a virtual folder in M-Files:
      * it evaluates the view’s filters (properties, relationships, reverse links)
      * and then filters the result set according to the current user’s permissions.
+     * The whole result is returned as one list; use the page endpoint for large views.
      * </p>
      *
      * Example:
@@ -113,7 +126,7 @@ public class ObjectViewController {
      *
      * @param id      ID of the saved view to execute
      * @param userId  ID of the user executing the view (for ACL filtering)
-     * @return list of {@link ObjectVersionEntity} accessible to the given user
+     * @return list of {@link ObjectVersionDto} accessible to the given user
      */
     @GetMapping("/{id}/execute/{userId}")
     @Operation(summary = "Execute view with ACL filtering",
@@ -129,7 +142,162 @@ public class ObjectViewController {
     public ResponseEntity<List<ObjectVersionDto>> executeWithAcl(
             @Parameter(description = "View ID to execute", example = "42") @PathVariable("id") Long id,
             @Parameter(description = "User ID for ACL filtering", example = "7") @PathVariable("userId") Long userId) {
-        List<ObjectVersionDto> result = executionService.execute(id, userId);
+        return ResponseEntity.ok(executionService.execute(id, userId));
+    }
+
+    /**
+     * Executes a saved view like {@link #executeWithAcl} but returns one page in version id order
+     * (keyset pagination): pass {@code nextAfter} of a page as {@code after} to get the next one.
+     *
+     * Example:
+     * <pre>
+     * GET /api/v1/views/42/page/7?limit=100&after=15230&total=true
+     * </pre>
+     * will execute the saved view with ID 42 and return the next 100 object versions
+     * with id greater than 15230 accessible to user 7.
+     *
+     * @param id      ID of the saved view to execute
+     * @param userId  ID of the user executing the view (for ACL filtering)
+     * @param path    group keys per grouping level: only versions of that group are returned
+     * @param after   keyset cursor: last version id of the previous page
+     * @param limit   page size, capped by {@code anubis.views.max-page-size}
+     * @param total   also return the total count (capped by {@code anubis.views.count-limit})
+     * @return page of {@link ObjectVersionDto} accessible to the given user
+     */
+    @GetMapping("/{id}/page/{userId}")
+    @Operation(summary = "Execute view page by page",
+            description = "Executes the specified saved view and returns one page of object versions "
+                    + "visible to the given user, after applying property, relationship, "
+                    + "and access control (ACL) filters. Pages are ordered by version id.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "View executed successfully. "
+                    + "Returns a page of accessible object versions."),
+            @ApiResponse(responseCode = "404", description = "View not found.")
+    })
+    public ResponseEntity<ObjectViewPageDto> executePage(
+            @Parameter(description = "View ID to execute", example = "42") @PathVariable("id") Long id,
+            @Parameter(description = "User ID for ACL filtering", example = "7") @PathVariable("userId") Long userId,
+            @Parameter(description = "Group keys of the grouping levels to drill down into", example = "15,2024-05-01")
+            @RequestParam(required = false) List<String> path,
+            @Parameter(description = "Last version id of the previous page", example = "15230")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Page size", example = "100")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Also count the total (capped)")
+            @RequestParam(defaultValue = "false") boolean total) {
+        ObjectViewPageDto result = executionService.executePage(id, userId, path, after, limit, total);
         return ResponseEntity.ok(result);
     }
+
+    /**
+     * Returns the groups (virtual folders) of one grouping level of a saved view with the number of
+     * versions accessible to the user in each. The level is the length of {@code path}: an empty path
+     * lists the top level, appending a group key lists its subgroups. Versions of a group are read
+     * with the page endpoint and the same path.
+     *
+     * Example:
+     * <pre>
+     * GET /api/v1/views/42/groups/7?path=15
+     * </pre>
+     */
+    @GetMapping("/{id}/groups/{userId}")
+    @Operation(summary = "Groups of a view level",
+            description = "Computes the groups of the next grouping level inside the given parent groups "
+                    + "with one aggregate query; versions without a value form a group with the key \"~\".")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Groups computed successfully."),
+            @ApiResponse(responseCode = "404", description = "View not found.")
+    })
+    public ResponseEntity<ViewGroupLevelDto> groups(
+            @Parameter(description = "View ID", example = "42") @PathVariable("id") Long id,
+            @Parameter(description = "User ID for ACL filtering", example = "7") @PathVariable("userId") Long userId,
+            @Parameter(description = "Keys of the parent groups", example = "15")
+            @RequestParam(required = false) List<String> path,
+            @Parameter(description = "Maximum number of groups", example = "500")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(executionService.groups(id, userId, path, limit));
+    }
+
+    /**
+     * Returns facet counts for the result of a saved view (after ACL filtering):
+     * versions per object type, class and items of the requested VALUELIST properties.
+     *
+     * Example:
+     * <pre>
+     * GET /api/v1/views/42/facets/7?propertyDefIds=12,15&limit=10
+     * </pre>
+     */
+    @GetMapping("/{id}/facets/{userId}")
+    @Operation(summary = "Facet counts of a view",
+            description = "Counts the versions returned by the view per object type, class and item of the "
+                    + "given VALUELIST properties in a single aggregate query; each facet keeps its most "
+                    + "frequent values up to the limit.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Facets computed successfully."),
+            @ApiResponse(responseCode = "404", description = "View not found.")
+    })
+    public ResponseEntity<List<FacetDto>> facets(
+            @Parameter(description = "View ID", example = "42") @PathVariable("id") Long id,
+            @Parameter(description = "User ID for ACL filtering", example = "7") @PathVariable("userId") Long userId,
+            @Parameter(description = "VALUELIST property definitions to count by", example = "12,15")
+            @RequestParam(required = false) List<Long> propertyDefIds,
+            @Parameter(description = "Values per facet", example = "10")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(executionService.facets(id, userId, propertyDefIds, limit));
+    }
+
+    /**
+     * Exports all versions of a saved view accessible to the user, with the given properties as columns.
+     * Rows are read from the database with a cursor and written to the response as they arrive, so the
+     * export is not limited by the page size and its memory use does not depend on its length.
+     *
+     * Example:
+     * <pre>
+     * GET /api/v1/views/42/export/7?format=XLSX&amp;propertyDefIds=12,15
+     * </pre>
+     */
+    @GetMapping("/{id}/export/{userId}")
+    @Operation(summary = "Export view result",
+            description = "Streams every version returned by the view (after ACL filtering) in version id order "
+                    + "as CSV, NDJSON or XLSX. Columns: version_id, object_id, object_name, version_num, "
+                    + "created_at, then one column per requested property; multiple values are joined with \"; \".")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully."),
+            @ApiResponse(responseCode = "400", description = "Too many property columns or grouping path too deep."),
+            @ApiResponse(responseCode = "404", description = "View or property definition not found.")
+    })
+    public void export(
+            @Parameter(description = "View ID", example = "42") @PathVariable("id") Long id,
+            @Parameter(description = "User ID for ACL filtering", example = "7") @PathVariable("userId") Long userId,
+            @Parameter(description = "File format") @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @Parameter(description = "Property definitions to export as columns, in order", example = "12,15")
+            @RequestParam(required = false) List<Long> propertyDefIds,
+            @Parameter(description = "Group keys of the grouping levels to export", example = "15")
+            @RequestParam(required = false) List<String> path,
+            HttpServletResponse response) throws IOException {
+        String filename;
+        List<PropertyDef> columns;
+        try {
+            filename = exportService.filename(id, format);
+            columns = exportService.resolveColumns(propertyDefIds);
+            exportService.checkPath(id, path);
+        } catch (EntityNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        response.setContentType(switch (format) {
+            case CSV -> "text/csv;charset=UTF-8";
+            case NDJSON -> "application/x-ndjson";
+            case XLSX -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        });
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(filename, StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        exportService.export(id, userId, path, columns, format, response.getOutputStream());
+    }
 }
@@ -0,0 +1,30 @@
+package ge.comcom.anubis.dto;
+
+import ge.comcom.anubis.enums.FacetKind;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Result counts grouped by object type, class or a value-list property.")
+public class FacetDto {
+
+    private FacetKind kind;
+
+    @Schema(description = "Property definition for PROPERTY facets, otherwise null")
+    private Long propertyDefId;
+
+    @Schema(description = "Property name for PROPERTY facets, otherwise null")
+    private String propertyName;
+
+    @Schema(description = "Most frequent values, at most the requested limit")
+    private List<FacetValueDto> values;
+
+    @Schema(description = "Number of distinct values before the limit was applied")
+    private long valueCount;
+}
@@ -0,0 +1,19 @@
+package ge.comcom.anubis.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "One value of a facet and the number of results having it.")
+public class FacetValueDto {
+
+    @Schema(description = "Object type, class or value-list item id")
+    private Long id;
+
+    private String name;
+    private long count;
+}
@@ -39,6 +39,9 @@ public class ObjectViewDto {
     /** Sort order (optional field for UI ordering). */
     private Integer sortOrder;
 
+    /** Match every version of an object instead of only the current one (default false). */
+    private Boolean allVersions;
+
     /** Optional grouping configuration (hierarchical display in UI). */
     private List<ViewGroupingDto> groupings;
 
@@ -0,0 +1,31 @@
+package ge.comcom.anubis.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Page of a saved view result ordered by version id (keyset pagination).")
+public class ObjectViewPageDto {
+
+    private int limit;
+
+    @Schema(description = "Cursor the page was requested with: versions with a greater id are returned")
+    private Long after;
+
+    private List<ObjectVersionDto> items;
+
+    @Schema(description = "Cursor for the next page; null when the result is exhausted")
+    private Long nextAfter;
+
+    @Schema(description = "Number of matching versions; null unless requested")
+    private Long total;
+
+    @Schema(description = "True when counting stopped at the configured limit and total is a lower bound")
+    private boolean totalIsApproximate;
+}
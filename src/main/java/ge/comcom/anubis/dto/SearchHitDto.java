@@ -0,0 +1,24 @@
+package ge.comcom.anubis.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Full-text search hit: the latest version of an object whose name, properties or files match the query.")
+public class SearchHitDto {
+
+    private Long objectId;
+    private String objectName;
+    private Long versionId;
+    @Schema(description = "Matched file; null when only the name or properties match")
+    private Long fileId;
+    private String fileName;
+    private Double rank;
+
+    @Schema(description = "Fragment of the matched text, terms wrapped in <mark>")
+    private String snippet;
+}
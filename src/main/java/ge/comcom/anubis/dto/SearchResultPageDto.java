@@ -0,0 +1,26 @@
+package ge.comcom.anubis.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Page of ranked full-text search hits.")
+public class SearchResultPageDto {
+
+    private String query;
+    private int limit;
+    private int offset;
+    private List<SearchHitDto> hits;
+
+    @Schema(description = "Number of matching objects; null unless requested")
+    private Long total;
+
+    @Schema(description = "True when counting stopped at the configured limit and total is a lower bound")
+    private boolean totalIsLowerBound;
+}
@@ -0,0 +1,22 @@
+package ge.comcom.anubis.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Autocomplete suggestion for the last word of a search query.")
+public class SearchSuggestionDto {
+
+    @Schema(description = "Suggested word (lower case)")
+    private String term;
+
+    @Schema(description = "Query with its last word replaced by the suggested one")
+    private String query;
+
+    @Schema(description = "Number of text chunks and version search documents containing the word")
+    private int frequency;
+}
@@ -0,0 +1,24 @@
+package ge.comcom.anubis.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "One group (virtual folder) of a view grouping level.")
+public class ViewGroupDto {
+
+    @Schema(description = "Opaque group key to append to the drill-down path (item/object id, number, date or "
+            + "a hash of the text); "~" for versions without a value", example = "15")
+    private String key;
+
+    @Schema(description = "Display name: the value itself, the referenced object name or the value-list item",
+            example = "Approved")
+    private String label;
+
+    @Schema(description = "Number of readable versions in the group")
+    private long count;
+}
@@ -0,0 +1,32 @@
+package ge.comcom.anubis.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Groups of one grouping level of a saved view inside the parent groups given by the path.")
+public class ViewGroupLevelDto {
+
+    @Schema(description = "Grouping level (0 = top)", example = "0")
+    private int level;
+
+    private Long propertyDefId;
+    private String propertyName;
+
+    @Schema(description = "Keys of the parent groups the level was computed in")
+    private List<String> path;
+
+    private List<ViewGroupDto> groups;
+
+    @Schema(description = "Number of distinct groups on the level (may exceed the returned groups)")
+    private long groupCount;
+
+    @Schema(description = "True when the view defines a deeper grouping level")
+    private boolean hasSubgroups;
+}
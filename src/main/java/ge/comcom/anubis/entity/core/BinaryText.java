@@ -0,0 +1,39 @@
+package ge.comcom.anubis.entity.core;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Entity для таблицы binary_text — текст, извлечённый из бинаря, по его sha256.
+ * Позволяет не отправлять в OCR повторно одно и то же содержимое.
+ */
+@Entity
+@Table(name = "binary_text")
+@Getter
+@Setter
+@NoArgsConstructor
+public class BinaryText {
+
+    @Id
+    @Column(name = "sha256", length = 128)
+    private String sha256;
+
+    /**
+     * Исходный текст, извлечённый из файла (Tika/OCR).
+     */
+    @Column(name = "extracted_text_raw", columnDefinition = "text", nullable = false)
+    private String extractedTextRaw;
+
+    @Column(name = "detected_language", length = 32)
+    private String detectedLanguage;
+
+    @Column(name = "language_confidence")
+    private Double languageConfidence;
+
+    @Column(name = "extracted_at", nullable = false)
+    private Instant extractedAt;
+}
@@ -83,6 +83,22 @@ public class ObjectEntity {
     @Comment("All versions of this object")
     private List<ObjectVersionEntity> versions = new ArrayList<>();
 
+    /**
+     * Latest version. Written only by {@code ObjectRepository.refreshVersionPointers}, never by entity updates,
+     * so a stale object instance cannot overwrite it.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "current_version_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "object_current_version_id_fkey"))
+    @Comment("Latest version of the object")
+    private ObjectVersionEntity currentVersion;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "first_version_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "object_first_version_id_fkey"))
+    @Comment("First version of the object (creation author and time)")
+    private ObjectVersionEntity firstVersion;
+
 
 
     @Builder.Default
@@ -46,14 +46,29 @@ public class ObjectViewEntity {
     @Column(name = "sort_order")
     private Integer sortOrder;
 
+    @Column(name = "all_versions", nullable = false)
+    @Comment("TRUE: match every version of an object; FALSE (default): only the current version.")
+    private Boolean allVersions = false;
+
     @OneToMany(mappedBy = "view", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<ObjectViewGroupingEntity> groupings = new ArrayList<>();
 
     @Column(name = "created_at", updatable = false)
     private Instant createdAt;
 
+    @Column(name = "updated_at", nullable = false)
+    @Comment("Last change of the view definition; compiled view queries are cached by it.")
+    private Instant updatedAt;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) createdAt = Instant.now();
+        if (updatedAt == null) updatedAt = createdAt;
+        if (allVersions == null) allVersions = false;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
     }
 }
@@ -0,0 +1,10 @@
+package ge.comcom.anubis.enums;
+
+/**
+ * File format of a view export.
+ */
+public enum ExportFormat {
+    CSV,     // RFC 4180, UTF-8, header row
+    NDJSON,  // One JSON object per line
+    XLSX     // Streaming Excel workbook (SXSSF)
+}
@@ -0,0 +1,10 @@
+package ge.comcom.anubis.enums;
+
+/**
+ * What a facet counts search or view results by.
+ */
+public enum FacetKind {
+    OBJECT_TYPE,  // "object".object_type_id
+    CLASS,        // "object".class_id
+    PROPERTY      // Items of a VALUELIST property (single and multi-select)
+}
@@ -0,0 +1,27 @@
+package ge.comcom.anubis.enums;
+
+/**
+ * Language of binary_text_chunk.chunk_vector (binary_text_chunk.fts_language) and its
+ * PostgreSQL text search configuration. Must match migrations V21/V22.
+ */
+public enum FtsLanguage {
+    ENGLISH("en", "english"),
+    RUSSIAN("ru", "russian"),
+    SIMPLE("simple", "simple");  // Georgian and other languages without a stemmer
+
+    private final String code;
+    private final String config;
+
+    FtsLanguage(String code, String config) {
+        this.code = code;
+        this.config = config;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public String config() {
+        return config;
+    }
+}
@@ -0,0 +1,19 @@
+package ge.comcom.anubis.enums;
+
+/**
+ * Priority of a full-text indexing job (index_job.priority, higher runs first).
+ */
+public enum IndexJobPriority {
+    BULK(0),          // Reindex triggered for many files
+    INTERACTIVE(10);  // Upload or reindex of a single version by a user
+
+    private final int value;
+
+    IndexJobPriority(int value) {
+        this.value = value;
+    }
+
+    public int value() {
+        return value;
+    }
+}
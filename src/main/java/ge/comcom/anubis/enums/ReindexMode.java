@@ -0,0 +1,10 @@
+package ge.comcom.anubis.enums;
+
+/**
+ * Selection of files for a bulk reindex (reindex_run.mode).
+ */
+public enum ReindexMode {
+    ALL,      // Every non-deleted file
+    OCR,      // Images and PDFs
+    MISSING   // Files whose content has no extracted text yet
+}
@@ -0,0 +1,10 @@
+package ge.comcom.anubis.enums;
+
+/**
+ * What a full-text search looks at.
+ */
+public enum SearchScope {
+    CONTENT,   // Extracted file text only
+    METADATA,  // Object name and property values only
+    ALL        // Both; name ranks above properties above content
+}
@@ -0,0 +1,219 @@
+package ge.comcom.anubis.integration.ocr;
+
+import ge.comcom.anubis.config.OcrProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Адаптивный лимит одновременных запросов к OCR-шлюзу (AIMD с порогом задержки в духе TCP Vegas).
+ * <p>
+ * Успешный ответ при загруженном лимите увеличивает его на единицу, а ответ, задержка которого
+ * в пересчёте на байт тела больше {@code latency-tolerance} × базовой, — уменьшает на единицу.
+ * Документы бывают от страницы до сотен, поэтому сравнивается задержка на байт (не меньше
+ * {@code size-floor}), а не абсолютная. Базовая задержка — минимум с затуханием: она постепенно растёт
+ * и сбрасывается более быстрым ответом, так что лимит следует за изменением производительности шлюза.
+ * Ошибка или таймаут шлюза уменьшают лимит в {@code backoff-ratio} раз.
+ * <p>
+ * Разрешение выдаётся неблокирующе ({@link #acquire()}); ожидающие запросы стоят в очереди FIFO
+ * и удаляются из неё при отмене подписки.
+ * <p>
+ * Метрики: {@code anubis.ocr.concurrency.limit}, {@code anubis.ocr.concurrency.inflight},
+ * {@code anubis.ocr.concurrency.queued}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private final OcrProperties ocrProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Deque<MonoSink<Permit>> waiters = new ArrayDeque<>();
+
+    /** Источник времени задержек, нс; в тестах заменяется управляемым. */
+    private volatile LongSupplier ticker = System::nanoTime;
+
+    private double limit;
+    private int inFlight;
+    /** Базовая задержка на байт тела, нс; растёт с каждым ответом, пока её не обновит более быстрый. */
+    private double baselineNanosPerByte = Double.MAX_VALUE;
+
+    @PostConstruct
+    void init() {
+        OcrProperties.Concurrency settings = ocrProperties.getConcurrency();
+        limit = clamp(settings.getInitialLimit());
+
+        Gauge.builder("anubis.ocr.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of concurrent OCR gateway requests")
+                .register(meterRegistry);
+        Gauge.builder("anubis.ocr.concurrency.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("OCR gateway requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("anubis.ocr.concurrency.queued", this, AdaptiveConcurrencyLimiter::getQueued)
+                .description("OCR requests waiting for a concurrency permit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Разрешение на один запрос. Выдаётся сразу, если лимит не исчерпан, иначе — после освобождения места.
+     * Отмена подписки до выдачи убирает запрос из очереди.
+     */
+    public Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+                    sink.onCancel(() -> removeWaiter(sink));
+                    Permit permit = null;
+                    synchronized (this) {
+                        if (waiters.isEmpty() && inFlight < (int) limit) {
+                            permit = grant();
+                        } else {
+                            waiters.addLast(sink);
+                        }
+                    }
+                    if (permit != null) {
+                        sink.success(permit);
+                    }
+                })
+                // Разрешение, выданное уже отменённому подписчику, возвращается в лимит
+                .doOnDiscard(Permit.class, Permit::ignore);
+    }
+
+    void setTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    private synchronized void removeWaiter(MonoSink<Permit> sink) {
+        waiters.remove(sink);
+    }
+
+    /** Вызывается под монитором. */
+    private Permit grant() {
+        inFlight++;
+        return new Permit(inFlight);
+    }
+
+    private void release(Permit permit, Outcome outcome) {
+        List<MonoSink<Permit>> ready = new ArrayList<>();
+        List<Permit> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            adjust(permit, outcome);
+            while (!waiters.isEmpty() && inFlight < (int) limit) {
+                ready.add(waiters.pollFirst());
+                granted.add(grant());
+            }
+        }
+        for (int i = 0; i < ready.size(); i++) {
+            ready.get(i).success(granted.get(i));
+        }
+    }
+
+    /** Вызывается под монитором. */
+    private void adjust(Permit permit, Outcome outcome) {
+        OcrProperties.Concurrency settings = ocrProperties.getConcurrency();
+        double previous = limit;
+
+        switch (outcome) {
+            case SUCCESS -> {
+                long rtt = ticker.getAsLong() - permit.startedAt;
+                long bytes = Math.max(permit.bytes.get(), Math.max(1, settings.getSizeFloor().toBytes()));
+                double nanosPerByte = (double) rtt / bytes;
+                // За baseline-window ответов без более быстрого базовая задержка вырастает примерно в e раз
+                double decay = 1.0 + 1.0 / Math.max(1, settings.getBaselineWindow());
+                baselineNanosPerByte = Math.min(nanosPerByte, baselineNanosPerByte * decay);
+
+                if (nanosPerByte > baselineNanosPerByte * settings.getLatencyTolerance()) {
+                    // Рост задержки — очередь на шлюзе; снижаем плавно, т.к. медленным может быть и сам документ
+                    limit = clamp(limit - 1);
+                } else if (permit.inFlightAtStart * 2 >= (int) limit) {
+                    // Увеличиваем, только если лимит действительно использовался
+                    limit = clamp(limit + 1);
+                }
+            }
+            case DROPPED -> limit = clamp(limit * settings.getBackoffRatio());
+            case IGNORED -> { }
+        }
+
+        if ((int) previous != (int) limit) {
+            log.debug("OCR concurrency limit {} -> {} ({})", (int) previous, (int) limit, outcome);
+        }
+    }
+
+    private double clamp(double value) {
+        OcrProperties.Concurrency settings = ocrProperties.getConcurrency();
+        int min = Math.max(1, settings.getMinLimit());
+        int max = Math.max(min, settings.getMaxLimit());
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Итог запроса для пересчёта лимита.
+     */
+    public enum Outcome {
+        SUCCESS,  // Ответ получен: учитывается задержка
+        DROPPED,  // Ошибка или таймаут шлюза: признак перегрузки
+        IGNORED   // Отмена или ошибка самого запроса: лимит не меняется
+    }
+
+    /**
+     * Разрешение на один запрос; освобождается ровно один раз.
+     */
+    public final class Permit {
+        private final long startedAt = ticker.getAsLong();
+        private final int inFlightAtStart;
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /** Учитывает отправленную часть тела запроса. */
+        public void sent(long byteCount) {
+            bytes.addAndGet(byteCount);
+        }
+
+        public void success() {
+            release(Outcome.SUCCESS);
+        }
+
+        public void dropped() {
+            release(Outcome.DROPPED);
+        }
+
+        public void ignore() {
+            release(Outcome.IGNORED);
+        }
+
+        private void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(this, outcome);
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.util.concurrent.TimeUnit;
 
@@ -18,14 +19,40 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class OcrClientConfiguration {
 
+    private static final String WRITE_TIMEOUT_HANDLER = "ocrWriteTimeout";
+    private static final String READ_TIMEOUT_HANDLER = "ocrReadTimeout";
+
+    /**
+     * Отдельный пул соединений к OCR-шлюзу: соединения переиспользуются между запросами,
+     * простаивающие и слишком старые закрываются фоном.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider ocrConnectionProvider(OcrProperties ocrProperties) {
+        OcrProperties.Pool pool = ocrProperties.getPool();
+        return ConnectionProvider.builder("ocr-gateway")
+                .maxConnections(Math.max(1, pool.getMaxConnections()))
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInterval())
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient ocrWebClient(WebClient.Builder builder, OcrProperties ocrProperties) {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient ocrWebClient(WebClient.Builder builder, OcrProperties ocrProperties,
+                                  ConnectionProvider ocrConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(ocrConnectionProvider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) ocrProperties.getConnectTimeout().toMillis())
                 .responseTimeout(ocrProperties.getRequestTimeout())
-                .doOnConnected(conn -> conn
-                        .addHandlerLast(new ReadTimeoutHandler(ocrProperties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
-                        .addHandlerLast(new WriteTimeoutHandler(ocrProperties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+                // Таймауты ставятся на время запроса и снимаются после него: соединение возвращается в пул без них
+                .doOnRequest((request, conn) -> conn.addHandlerLast(WRITE_TIMEOUT_HANDLER,
+                        new WriteTimeoutHandler(ocrProperties.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)))
+                .doAfterRequest((request, conn) -> conn
+                        .removeHandler(WRITE_TIMEOUT_HANDLER)
+                        .addHandlerLast(READ_TIMEOUT_HANDLER,
+                                new ReadTimeoutHandler(ocrProperties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)))
+                .doAfterResponseSuccess((response, conn) -> conn.removeHandler(READ_TIMEOUT_HANDLER));
 
         return builder
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
@@ -4,19 +4,28 @@ import ge.comcom.anubis.config.OcrProperties;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.File;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 @Component
 @RequiredArgsConstructor
@@ -24,9 +33,11 @@ import java.util.Optional;
 public class RemoteOcrClient {
 
     private static final Path DOCKER_ENV = Path.of("/.dockerenv");
+    private static final int UPLOAD_CHUNK_SIZE = 64 * 1024;
 
     private final WebClient ocrWebClient;
     private final OcrProperties ocrProperties;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
     private final boolean insideContainer = Files.exists(DOCKER_ENV);
 
@@ -51,45 +62,92 @@ public class RemoteOcrClient {
         log.info("OCR-шлюз готов к работе: {}", ocrProperties.getServiceUrl());
     }
 
-    public Optional<RemoteOcrResponse> extract(File file, String originalFileName) {
+    /**
+     * Блокирующая обёртка над {@link #extractAsync} для воркеров очереди индексации.
+     * Прерывание потока отменяет запрос к шлюзу.
+     */
+    public Optional<RemoteOcrResponse> extract(Callable<InputStream> content, String fileName) {
+        try {
+            return extractAsync(content, fileName).blockOptional();
+        } catch (Exception ex) {
+            // Пробрасываем, чтобы очередь индексации повторила попытку
+            throw new IllegalStateException("OCR gateway request failed for " + fileName + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Отправляет содержимое в OCR-шлюз потоком: multipart-тело читается из {@code content}
+     * блоками по {@value #UPLOAD_CHUNK_SIZE} байт, без временного файла и без копии в памяти.
+     * Поток открывается при отправке запроса и закрывается по её завершении.
+     * <p>
+     * Запрос ждёт разрешения {@link AdaptiveConcurrencyLimiter}; итог и задержка ответа пересчитывают лимит.
+     * Отмена подписки снимает запрос из очереди лимита или обрывает соединение со шлюзом.
+     * Пустой результат — OCR отключён или шлюз вернул пустое тело.
+     */
+    public Mono<RemoteOcrResponse> extractAsync(Callable<InputStream> content, String fileName) {
         if (!ocrProperties.isEnabled()) {
             log.debug("Remote OCR disabled by configuration");
-            return Optional.empty();
+            return Mono.empty();
         }
-        if (file == null || !file.exists()) {
-            log.warn("Cannot send null/non-existing file to OCR service");
-            return Optional.empty();
+        if (content == null) {
+            log.warn("Cannot send null content to OCR service");
+            return Mono.empty();
         }
 
-        String fileName = originalFileName != null ? originalFileName : file.getName();
-        FileSystemResource resource = new FileSystemResource(file);
+        Mono<AdaptiveConcurrencyLimiter.Permit> permit = concurrencyLimiter.acquire()
+                .timeout(ocrProperties.getConcurrency().getAcquireTimeout(), Mono.error(() ->
+                        new IllegalStateException("OCR concurrency limit " + concurrencyLimiter.getLimit()
+                                + " exhausted, waited " + ocrProperties.getConcurrency().getAcquireTimeout())));
+
+        return Mono.usingWhen(permit,
+                p -> send(content, fileName, p),
+                p -> Mono.fromRunnable(p::success),
+                (p, ex) -> Mono.fromRunnable(() -> {
+                    if (isGatewayOverload(ex)) {
+                        p.dropped();
+                    } else {
+                        p.ignore();
+                    }
+                }),
+                p -> Mono.fromRunnable(p::ignore));
+    }
+
+    private Mono<RemoteOcrResponse> send(Callable<InputStream> content, String fileName,
+                                         AdaptiveConcurrencyLimiter.Permit permit) {
+        Flux<DataBuffer> body = DataBufferUtils
+                .readInputStream(content, DefaultDataBufferFactory.sharedInstance, UPLOAD_CHUNK_SIZE)
+                .subscribeOn(Schedulers.boundedElastic())
+                // Размер тела нужен лимиту, чтобы сравнивать задержки документов разного размера
+                .doOnNext(buffer -> permit.sent(buffer.readableByteCount()));
+
         MultipartBodyBuilder builder = new MultipartBodyBuilder();
-        builder.part("file", resource)
-                .filename(fileName)
+        builder.asyncPart("file", body, DataBuffer.class)
+                .filename(fileName != null ? fileName : "document")
                 .contentType(MediaType.APPLICATION_OCTET_STREAM);
 
-        Duration timeout = ocrProperties.getRequestTimeout();
-
-        try {
-            RemoteOcrResponse response = ocrWebClient.post()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/ocr")
-                            .queryParam("languages", ocrProperties.getLanguages())
-                            .build())
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .body(BodyInserters.fromMultipartData(builder.build()))
-                    .retrieve()
-                    .bodyToMono(RemoteOcrResponse.class)
-                    .timeout(timeout)
-                    .doOnSubscribe(sub -> log.debug("Отправляем {} в OCR-шлюз {}", fileName, ocrProperties.getServiceUrl()))
-                    .doOnError(ex -> log.error("Ошибка OCR-шлюза: {}", ex.getMessage()))
-                    .block();
+        return ocrWebClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/ocr")
+                        .queryParam("languages", ocrProperties.getLanguages())
+                        .build())
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .retrieve()
+                .bodyToMono(RemoteOcrResponse.class)
+                .timeout(ocrProperties.getRequestTimeout())
+                .doOnSubscribe(sub -> log.debug("Отправляем {} в OCR-шлюз {}", fileName, ocrProperties.getServiceUrl()))
+                .doOnError(ex -> log.error("Ошибка OCR-шлюза: {}", ex.getMessage()));
+    }
 
-            return Optional.ofNullable(response);
-        } catch (Exception ex) {
-            log.error("OCR gateway request failed for {}: {}", fileName, ex.getMessage());
-            return Optional.empty();
+    /**
+     * Таймауты, сетевые ошибки, 5xx и 429 говорят о перегрузке шлюза; прочие 4xx — об ошибке самого запроса.
+     */
+    private static boolean isGatewayOverload(Throwable ex) {
+        if (ex instanceof WebClientResponseException response) {
+            HttpStatusCode status = response.getStatusCode();
+            return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
         }
+        return true;
     }
 
     private boolean isServiceReady() {
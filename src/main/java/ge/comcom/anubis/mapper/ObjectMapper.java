@@ -8,7 +8,6 @@ import ge.comcom.anubis.entity.core.ObjectVersionEntity;
 import org.mapstruct.*;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 // ObjectMapper.java
 @Mapper(componentModel = "spring", uses = {InstantMapper.class})
@@ -17,13 +16,15 @@ public interface ObjectMapper {
     @Mapping(target = "typeId", source = "objectType.id")
     @Mapping(target = "classId", source = "objectClass.id")
     @Mapping(target = "isDeleted", source = "isDeleted")
-    @Mapping(target = "createdAt", source = "versions", qualifiedByName = "firstVersionCreatedAt")
-    @Mapping(target = "createdBy", source = "versions", qualifiedByName = "firstVersionCreatedBy")
+    @Mapping(target = "createdAt", source = "firstVersion", qualifiedByName = "firstVersionCreatedAt")
+    @Mapping(target = "createdBy", source = "firstVersion", qualifiedByName = "firstVersionCreatedBy")
     ObjectDto toDto(ObjectEntity entity);
 
     @Mapping(target = "objectType", source = "typeId", qualifiedByName = "mapTypeId")
     @Mapping(target = "objectClass", source = "classId", qualifiedByName = "mapClassId")
     @Mapping(target = "versions", ignore = true)
+    @Mapping(target = "currentVersion", ignore = true)
+    @Mapping(target = "firstVersion", ignore = true)
     @Mapping(target = "outgoingLinks", ignore = true)
     @Mapping(target = "incomingLinks", ignore = true)
     @Mapping(target = "acl", ignore = true)
@@ -35,6 +36,8 @@ public interface ObjectMapper {
     @Mapping(target = "objectType", source = "typeId", qualifiedByName = "mapTypeId")
     @Mapping(target = "objectClass", source = "classId", qualifiedByName = "mapClassId")
     @Mapping(target = "versions", ignore = true)
+    @Mapping(target = "currentVersion", ignore = true)
+    @Mapping(target = "firstVersion", ignore = true)
     @Mapping(target = "outgoingLinks", ignore = true)
     @Mapping(target = "incomingLinks", ignore = true)
     @Mapping(target = "acl", ignore = true)
@@ -43,18 +46,12 @@ public interface ObjectMapper {
     void updateEntityFromDto(ObjectDto dto, @MappingTarget ObjectEntity entity);
 
     @Named("firstVersionCreatedAt")
-    default LocalDateTime firstVersionCreatedAt(List<ObjectVersionEntity> versions) {
-        return versions == null || versions.isEmpty()
-                ? null
-                : InstantMapper.toLocalDateTime(versions.get(0).getCreatedAt());
+    default LocalDateTime firstVersionCreatedAt(ObjectVersionEntity first) {
+        return first == null ? null : InstantMapper.toLocalDateTime(first.getCreatedAt());
     }
 
     @Named("firstVersionCreatedBy")
-    default String firstVersionCreatedBy(List<ObjectVersionEntity> versions) {
-        if (versions == null || versions.isEmpty()) {
-            return null;
-        }
-        ObjectVersionEntity first = versions.get(0);
+    default String firstVersionCreatedBy(ObjectVersionEntity first) {
         if (first == null || first.getCreatedBy() == null) {
             return null;
         }
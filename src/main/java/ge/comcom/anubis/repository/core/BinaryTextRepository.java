@@ -0,0 +1,47 @@
+package ge.comcom.anubis.repository.core;
+
+import ge.comcom.anubis.entity.core.BinaryText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface BinaryTextRepository extends JpaRepository<BinaryText, String> {
+
+    /**
+     * Вставка или замена текста бинаря; безопасна при одновременной индексации одного содержимого.
+     * Строка остаётся заблокированной до конца транзакции, поэтому фрагменты одного sha256 в той же
+     * транзакции заменяет только один индексатор за раз.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO binary_text (sha256, extracted_text_raw, detected_language, language_confidence, extracted_at)
+        VALUES (:sha256, :text, :language, :confidence, now())
+        ON CONFLICT (sha256) DO UPDATE
+            SET extracted_text_raw = EXCLUDED.extracted_text_raw,
+                detected_language = EXCLUDED.detected_language,
+                language_confidence = EXCLUDED.language_confidence,
+                extracted_at = EXCLUDED.extracted_at
+        """, nativeQuery = true)
+    int upsert(@Param("sha256") String sha256,
+               @Param("text") String text,
+               @Param("language") String language,
+               @Param("confidence") Double confidence);
+
+    @Modifying
+    @Query(value = "DELETE FROM binary_text_chunk WHERE sha256 = :sha256", nativeQuery = true)
+    int deleteChunks(@Param("sha256") String sha256);
+
+    /**
+     * Сохраняет фрагменты текста по порядку (chunk_no с нуля); язык берётся у всего текста.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO binary_text_chunk (sha256, chunk_no, chunk_text, detected_language)
+        SELECT :sha256, c.ord - 1, c.chunk, :language
+        FROM unnest(CAST(:chunks AS text[])) WITH ORDINALITY AS c(chunk, ord)
+        """, nativeQuery = true)
+    int insertChunks(@Param("sha256") String sha256,
+                     @Param("chunks") String[] chunks,
+                     @Param("language") String language);
+}
@@ -4,8 +4,10 @@ import ge.comcom.anubis.entity.core.ObjectFileEntity;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ObjectFileRepository extends JpaRepository<ObjectFileEntity, Long> {
 
@@ -22,26 +24,22 @@ public interface ObjectFileRepository extends JpaRepository<ObjectFileEntity, Lo
     """)
     List<ObjectFileEntity> findAllByObjectId(Long objectId);
 
-    @EntityGraph(attributePaths = {"version", "version.object"})
+    /**
+     * Имя файла, sha256 и MIME-тип его бинаря без загрузки содержимого.
+     */
     @Query("""
-            SELECT f FROM ObjectFileEntity f
-            WHERE (LOWER(f.binary.mimeType) LIKE 'image/%')
-               OR LOWER(f.binary.mimeType) = 'application/pdf'
-               OR LOWER(f.fileName) LIKE '%.tif'
-               OR LOWER(f.fileName) LIKE '%.tiff'
-               OR LOWER(f.fileName) LIKE '%.jpg'
-               OR LOWER(f.fileName) LIKE '%.jpeg'
-               OR LOWER(f.fileName) LIKE '%.png'
-               OR LOWER(f.fileName) LIKE '%.bmp'
+            SELECT f.fileName AS fileName, b.sha256 AS sha256, b.mimeType AS mimeType
+            FROM ObjectFileEntity f
+            JOIN f.binary b
+            WHERE f.id = :fileId
     """)
-    List<ObjectFileEntity> findAllOcrCandidates();
+    Optional<BinaryFingerprint> findBinaryFingerprint(@Param("fileId") Long fileId);
 
-    @EntityGraph(attributePaths = {"version", "version.object"})
-    @Query("""
-            SELECT f FROM ObjectFileEntity f
-            WHERE f.version.id NOT IN (
-                SELECT c.objectVersionId FROM SearchTextCache c
-            )
-    """)
-    List<ObjectFileEntity> findAllWithoutIndexedText();
+    interface BinaryFingerprint {
+        String getFileName();
+
+        String getSha256();
+
+        String getMimeType();
+    }
 }
@@ -1,8 +1,11 @@
 package ge.comcom.anubis.repository.core;
 
 import ge.comcom.anubis.entity.core.ObjectEntity;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -28,6 +31,29 @@ public interface ObjectRepository
             "WHERE o.id = :id")
     Optional<ObjectEntity> findByIdWithLinks(@Param("id") Long id);
 
+    /**
+     * Загружает объект с блокировкой строки: изменения версий одного объекта выполняются по очереди.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM ObjectEntity o WHERE o.id = :id")
+    Optional<ObjectEntity> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Пересчитывает указатели на первую и текущую версию объекта по object_version.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE "object" o
+        SET current_version_id = (SELECT v.version_id FROM object_version v
+                                  WHERE v.object_id = o.object_id
+                                  ORDER BY v.version_num DESC LIMIT 1),
+            first_version_id = (SELECT v.version_id FROM object_version v
+                                WHERE v.object_id = o.object_id
+                                ORDER BY v.version_num ASC LIMIT 1)
+        WHERE o.object_id = :objectId
+        """, nativeQuery = true)
+    int refreshVersionPointers(@Param("objectId") Long objectId);
+
     List<ObjectEntity> findByIsDeletedFalse();
 
     Page<ObjectEntity> findByIsDeletedFalse(Pageable pageable);
@@ -2,13 +2,21 @@ package ge.comcom.anubis.repository.view;
 
 import ge.comcom.anubis.entity.view.ObjectViewEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ObjectViewRepository extends JpaRepository<ObjectViewEntity, Long> {
 
     // Важно: правильный путь — createdBy.id
     List<ObjectViewEntity> findAllByCreatedBy_IdOrIsCommonTrue(Long userId);
+
+    // Только отметка изменения — для проверки кэша скомпилированных запросов без чтения filter_json
+    @Query("SELECT v.updatedAt FROM ObjectViewEntity v WHERE v.id = :id")
+    Optional<Instant> findUpdatedAtById(@Param("id") Long id);
 }
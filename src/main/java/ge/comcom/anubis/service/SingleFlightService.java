@@ -0,0 +1,126 @@
+package ge.comcom.anubis.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Объединение одновременных одинаковых вычислений (single-flight).
+ * <p>
+ * Пока вычисление по ключу {@code operation + key} (обычно sha256 бинаря) выполняется,
+ * остальные вызовы с тем же ключом не запускают его повторно, а ждут и получают тот же результат
+ * (или то же исключение). После завершения ключ освобождается — это не кэш.
+ * <p>
+ * Метрики: {@code anubis.singleflight.requests{operation, role=leader|follower}},
+ * {@code anubis.singleflight.dedup.ratio{operation}} и {@code anubis.singleflight.inflight}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SingleFlightService {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("anubis.singleflight.inflight", inFlight, Map::size)
+                .description("Computations currently in flight")
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    public interface Flight<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T execute(String operation, String key, Flight<T, E> task) throws E {
+        String flightKey = operation + ":" + key;
+        OperationStats operationStats = statsFor(operation);
+
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, own);
+
+        if (existing != null) {
+            operationStats.followers().increment();
+            log.debug("Joined in-flight {} for key {}", operation, key);
+            return (T) this.<E>await(existing);
+        }
+
+        operationStats.leaders().increment();
+        try {
+            T result = task.call();
+            own.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, own);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> Object await(CompletableFuture<Object> future) throws E {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight computation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            // Лидер выполнял ту же операцию, поэтому проверяемое исключение имеет тот же тип E
+            throw (E) cause;
+        }
+    }
+
+    private OperationStats statsFor(String operation) {
+        return stats.computeIfAbsent(operation, this::registerOperation);
+    }
+
+    private OperationStats registerOperation(String operation) {
+        OperationStats operationStats = new OperationStats(
+                counter(operation, "leader"),
+                counter(operation, "follower")
+        );
+        Gauge.builder("anubis.singleflight.dedup.ratio", operationStats, OperationStats::dedupRatio)
+                .description("Share of requests served by joining an in-flight computation")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        return operationStats;
+    }
+
+    private Counter counter(String operation, String role) {
+        return Counter.builder("anubis.singleflight.requests")
+                .description("Single-flight requests by role")
+                .tag("operation", operation)
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+
+    private record OperationStats(Counter leaders, Counter followers) {
+        double dedupRatio() {
+            double followerCount = followers.count();
+            double total = leaders.count() + followerCount;
+            return total == 0 ? 0.0 : followerCount / total;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.IndexQueueProperties;
+import ge.comcom.anubis.enums.IndexJobPriority;
+import ge.comcom.anubis.enums.ReindexMode;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Массовая переиндексация без загрузки всех файлов в память.
+ * <p>
+ * object_file обходится страницами по file_id (keyset), каждая страница — короткая транзакция,
+ * которая ставит файлы в очередь index_job. Одновременно в очереди не больше
+ * {@code anubis.index-queue.reindex.parallel-pages} страниц; когда самая ранняя страница обработана
+ * воркерами, контрольная точка (reindex_run.checkpoint_file_id) сдвигается.
+ * <p>
+ * Прогон ведёт один экземпляр приложения — владелец (reindex_run.owner), который регулярно обновляет
+ * heartbeat_at. Строка захватывается одним UPDATE с условием «владельца нет или его отметка старше
+ * {@code owner-timeout}», поэтому два узла не продолжат один прогон, а живой прогон другого узла
+ * не закрывается как зависший. Брошенный прогон (узел упал или остановлен) подхватывает любой
+ * экземпляр и продолжает с контрольной точки.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkReindexService {
+
+    private final IndexJobQueueService indexJobQueue;
+    private final IndexQueueProperties properties;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** Идентификатор экземпляра приложения в reindex_run.owner. */
+    private final String owner = hostName() + "/" + UUID.randomUUID();
+
+    /** Обход страниц и периодическая проверка брошенных прогонов; один поток, поэтому они не пересекаются. */
+    private final ScheduledExecutorService coordinator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reindex-coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile RunState current;
+    private volatile boolean shuttingDown;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleResume() {
+        long interval = Math.max(1_000L, ownerTimeout().toMillis());
+        coordinator.scheduleWithFixedDelay(this::resumeAbandonedRun, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Захватывает RUNNING-прогон без живого владельца и продолжает его с контрольной точки.
+     */
+    synchronized void resumeAbandonedRun() {
+        RunState active = current;
+        if (active != null && "running".equals(active.status)) {
+            return;
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = new TransactionTemplate(transactionManager).execute(status ->
+                    em.createNativeQuery("""
+                                    UPDATE reindex_run
+                                    SET owner = :owner, heartbeat_at = now()
+                                    WHERE status = 'RUNNING'
+                                      AND (owner IS NULL OR heartbeat_at < now() - make_interval(secs => :timeout))
+                                    RETURNING run_id, mode, checkpoint_file_id, total, processed, force_ocr
+                                    """)
+                            .setParameter("owner", owner)
+                            .setParameter("timeout", ownerTimeout().toSeconds())
+                            .getResultList());
+            if (rows == null || rows.isEmpty()) {
+                return;
+            }
+            Object[] row = rows.get(0);
+            RunState run = new RunState(
+                    ((Number) row[0]).longValue(),
+                    ReindexMode.valueOf((String) row[1]),
+                    ((Number) row[3]).longValue(),
+                    ((Number) row[4]).longValue(),
+                    ((Number) row[2]).longValue(),
+                    Boolean.TRUE.equals(row[5])
+            );
+            log.info("Resuming {} reindex run {} from file_id {} ({}/{})",
+                    run.mode, run.runId, run.checkpoint, run.processed, run.total);
+            launch(run);
+        } catch (Exception e) {
+            log.warn("Failed to check for abandoned reindex runs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Запускает переиндексацию. Если прогон уже идёт, возвращает его прогресс.
+     *
+     * @param forceOcr выполнить OCR заново, не используя сохранённый текст бинарей
+     */
+    public synchronized ReindexProgress start(ReindexMode mode, boolean forceOcr) {
+        RunState active = current;
+        if (active != null && "running".equals(active.status)) {
+            log.info("Reindex run {} is already running", active.runId);
+            return progress();
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        RunState run = tx.execute(status -> {
+            // Прогон другого узла с живой отметкой не трогаем; брошенный закрываем, новый прогон его заменяет
+            @SuppressWarnings("unchecked")
+            List<Number> live = em.createNativeQuery("""
+                            SELECT run_id FROM reindex_run
+                            WHERE status = 'RUNNING' AND owner IS NOT NULL
+                              AND heartbeat_at >= now() - make_interval(secs => :timeout)
+                            """)
+                    .setParameter("timeout", ownerTimeout().toSeconds())
+                    .getResultList();
+            if (!live.isEmpty()) {
+                return null;
+            }
+            int stale = em.createNativeQuery("""
+                            UPDATE reindex_run
+                            SET status = 'FAILED', updated_at = now(), finished_at = now()
+                            WHERE status = 'RUNNING'
+                            """)
+                    .executeUpdate();
+            if (stale > 0) {
+                log.warn("Closed {} abandoned RUNNING reindex run(s) as FAILED", stale);
+            }
+            long total = ((Number) em.createNativeQuery(
+                            "SELECT COUNT(*) FROM object_file f " + joinClause(mode) + " WHERE NOT f.deleted " + filterClause(mode))
+                    .getSingleResult()).longValue();
+            long runId = ((Number) em.createNativeQuery("SELECT nextval('reindex_run_run_id_seq')")
+                    .getSingleResult()).longValue();
+            em.createNativeQuery("""
+                            INSERT INTO reindex_run (run_id, mode, total, force_ocr, owner)
+                            VALUES (:runId, :mode, :total, :forceOcr, :owner)
+                            """)
+                    .setParameter("owner", owner)
+                    .setParameter("runId", runId)
+                    .setParameter("mode", mode.name())
+                    .setParameter("total", total)
+                    .setParameter("forceOcr", forceOcr)
+                    .executeUpdate();
+            return new RunState(runId, mode, total, 0, 0, forceOcr);
+        });
+        if (run == null) {
+            log.info("A reindex run is already driven by another instance");
+            return new ReindexProgress(null, mode, 0, 0, 0.0, "00:00:00", "unknown", 0, "running elsewhere");
+        }
+
+        log.info("Started {} reindex run {} ({} files, forceOcr={})", mode, run.runId, run.total, forceOcr);
+        launch(run);
+        return progress();
+    }
+
+    /**
+     * Останавливает текущий прогон; поставленные в очередь задачи доработают воркеры.
+     */
+    public ReindexProgress cancel() {
+        RunState run = current;
+        if (run != null) {
+            run.cancelled = true;
+        }
+        return progress();
+    }
+
+    public ReindexProgress progress() {
+        RunState run = current;
+        if (run == null) {
+            return new ReindexProgress(null, null, 0, 0, 0.0, "00:00:00", "unknown", 0, "idle");
+        }
+
+        long processed = run.processed;
+        long total = run.total;
+        long elapsed = (System.currentTimeMillis() - run.startedAtMillis) / 1000;
+
+        double percent = 0.0;
+        if (processed > 0 && total > 0) {
+            percent = Math.round((processed * 100000.0 / total)) / 1000.0; // round to 0.001
+        }
+
+        // Скорость считаем только по работе текущего процесса (после возобновления)
+        long done = processed - run.processedAtStart;
+        long etaSeconds = 0;
+        if (done > 0 && elapsed > 0 && total > processed) {
+            etaSeconds = Math.round((double) elapsed * (total - processed) / done);
+        }
+
+        String etaHms = String.format("%02d:%02d:%02d", etaSeconds / 3600, (etaSeconds % 3600) / 60, etaSeconds % 60);
+        String estimatedFinish = Instant.ofEpochMilli(System.currentTimeMillis() + etaSeconds * 1000)
+                .atZone(ZoneId.systemDefault())
+                .toLocalDateTime()
+                .toString();
+
+        return new ReindexProgress(run.runId, run.mode, processed, total, percent, etaHms, estimatedFinish,
+                run.checkpoint, run.status);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Прогон остаётся RUNNING; владелец снимается, чтобы его сразу продолжил другой экземпляр
+        shuttingDown = true;
+        coordinator.shutdownNow();
+        RunState run = current;
+        if (run != null) {
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(tx ->
+                        em.createNativeQuery("""
+                                        UPDATE reindex_run SET owner = NULL
+                                        WHERE run_id = :runId AND owner = :owner AND status = 'RUNNING'
+                                        """)
+                                .setParameter("runId", run.runId)
+                                .setParameter("owner", owner)
+                                .executeUpdate());
+            } catch (Exception e) {
+                log.debug("Could not release reindex run {}: {}", run.runId, e.getMessage());
+            }
+        }
+    }
+
+    private void launch(RunState run) {
+        current = run;
+        coordinator.execute(() -> walk(run));
+    }
+
+    private void walk(RunState run) {
+        int pageSize = Math.max(1, properties.getReindex().getPageSize());
+        int parallelPages = Math.max(1, properties.getReindex().getParallelPages());
+        Deque<Page> inFlight = new ArrayDeque<>();
+        long cursor = run.checkpoint;
+        boolean exhausted = false;
+        long heartbeatInterval = Math.max(1_000L, ownerTimeout().toMillis() / 4);
+        long heartbeatAt = System.currentTimeMillis();
+
+        try {
+            while (!run.cancelled) {
+                if (System.currentTimeMillis() - heartbeatAt >= heartbeatInterval) {
+                    heartbeatAt = System.currentTimeMillis();
+                    if (!heartbeat(run)) {
+                        log.warn("Reindex run {} was taken over by another instance; stopping here", run.runId);
+                        run.status = "taken over";
+                        return;
+                    }
+                }
+                while (!exhausted && inFlight.size() < parallelPages) {
+                    List<Long> fileIds = nextPage(run.mode, cursor, pageSize);
+                    if (fileIds.isEmpty()) {
+                        exhausted = true;
+                        break;
+                    }
+                    indexJobQueue.enqueueAll(fileIds, IndexJobPriority.BULK, run.forceOcr);
+                    long last = fileIds.get(fileIds.size() - 1);
+                    inFlight.addLast(new Page(cursor, last, fileIds.size()));
+                    cursor = last;
+                }
+
+                while (!inFlight.isEmpty() && isDrained(inFlight.peekFirst())) {
+                    Page page = inFlight.pollFirst();
+                    run.processed += page.size();
+                    run.checkpoint = page.lastFileId();
+                    saveCheckpoint(run);
+                }
+
+                if (exhausted && inFlight.isEmpty()) {
+                    finish(run, "FINISHED");
+                    return;
+                }
+                Thread.sleep(properties.getPollInterval().toMillis());
+            }
+            finish(run, "CANCELLED");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (shuttingDown) {
+                run.status = "interrupted";
+                return;
+            }
+            log.warn("Reindex run {} interrupted at file_id {}", run.runId, run.checkpoint);
+            fail(run, "interrupted");
+        } catch (Exception e) {
+            log.error("Reindex run {} stopped at file_id {}: {}", run.runId, run.checkpoint, e.getMessage(), e);
+            fail(run, "error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Записывает FAILED, чтобы строка не держала уникальный индекс RUNNING. Если и это не удалось,
+     * строку после истечения отметки владельца подхватит {@link #resumeAbandonedRun} или закроет {@link #start}.
+     */
+    private void fail(RunState run, String reason) {
+        try {
+            finish(run, "FAILED");
+        } catch (Exception e) {
+            log.error("Could not mark reindex run {} as FAILED: {}", run.runId, e.getMessage());
+        }
+        run.status = reason;
+    }
+
+    private List<Long> nextPage(ReindexMode mode, long afterFileId, int limit) {
+        @SuppressWarnings("unchecked")
+        List<Number> rows = em.createNativeQuery(
+                        "SELECT f.file_id FROM object_file f " + joinClause(mode)
+                                + " WHERE f.file_id > :after AND NOT f.deleted " + filterClause(mode)
+                                + " ORDER BY f.file_id LIMIT :limit")
+                .setParameter("after", afterFileId)
+                .setParameter("limit", limit)
+                .getResultList();
+        return rows.stream().map(Number::longValue).toList();
+    }
+
+    /** Страница обработана, когда для её диапазона file_id не осталось ожидающих и выполняющихся задач. */
+    private boolean isDrained(Page page) {
+        Object pending = em.createNativeQuery("""
+                        SELECT EXISTS (
+                            SELECT 1 FROM index_job
+                            WHERE file_id > :from AND file_id <= :to
+                              AND status IN ('PENDING', 'RUNNING')
+                        )
+                        """)
+                .setParameter("from", page.afterFileId())
+                .setParameter("to", page.lastFileId())
+                .getSingleResult();
+        return !Boolean.TRUE.equals(pending);
+    }
+
+    /** Отметка владельца; {@code false}, если прогон уже захватил другой экземпляр. */
+    private boolean heartbeat(RunState run) {
+        Integer updated = new TransactionTemplate(transactionManager).execute(status ->
+                em.createNativeQuery("""
+                                UPDATE reindex_run SET heartbeat_at = now()
+                                WHERE run_id = :runId AND owner = :owner AND status = 'RUNNING'
+                                """)
+                        .setParameter("runId", run.runId)
+                        .setParameter("owner", owner)
+                        .executeUpdate());
+        return updated != null && updated > 0;
+    }
+
+    private void saveCheckpoint(RunState run) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createNativeQuery("""
+                                UPDATE reindex_run
+                                SET checkpoint_file_id = :checkpoint, processed = :processed,
+                                    updated_at = now(), heartbeat_at = now()
+                                WHERE run_id = :runId AND owner = :owner
+                                """)
+                        .setParameter("checkpoint", run.checkpoint)
+                        .setParameter("processed", run.processed)
+                        .setParameter("runId", run.runId)
+                        .setParameter("owner", owner)
+                        .executeUpdate());
+    }
+
+    private void finish(RunState run, String status) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx ->
+                em.createNativeQuery("""
+                                UPDATE reindex_run
+                                SET status = :status, updated_at = now(), finished_at = now()
+                                WHERE run_id = :runId AND owner = :owner
+                                """)
+                        .setParameter("status", status)
+                        .setParameter("runId", run.runId)
+                        .setParameter("owner", owner)
+                        .executeUpdate());
+        run.status = status.toLowerCase();
+        log.info("Reindex run {} {} ({}/{} files)", run.runId, run.status, run.processed, run.total);
+    }
+
+    private Duration ownerTimeout() {
+        return properties.getReindex().getOwnerTimeout();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown-host";
+        }
+    }
+
+    private static String joinClause(ReindexMode mode) {
+        return mode == ReindexMode.OCR ? "JOIN file_binary b ON b.binary_id = f.binary_id" : "";
+    }
+
+    private static String filterClause(ReindexMode mode) {
+        return switch (mode) {
+            case ALL -> "";
+            case OCR -> """
+                    AND (LOWER(b.mime_type) LIKE 'image/%'
+                         OR LOWER(b.mime_type) = 'application/pdf'
+                         OR LOWER(f.file_name) LIKE '%.tif'
+                         OR LOWER(f.file_name) LIKE '%.tiff'
+                         OR LOWER(f.file_name) LIKE '%.jpg'
+                         OR LOWER(f.file_name) LIKE '%.jpeg'
+                         OR LOWER(f.file_name) LIKE '%.png'
+                         OR LOWER(f.file_name) LIKE '%.bmp')
+                    """;
+            case MISSING -> """
+                    AND NOT EXISTS (
+                        SELECT 1 FROM file_binary mb
+                        JOIN binary_text t ON t.sha256 = mb.sha256
+                        WHERE mb.binary_id = f.binary_id
+                    )
+                    """;
+        };
+    }
+
+    private record Page(long afterFileId, long lastFileId, int size) { }
+
+    private static final class RunState {
+        private final long runId;
+        private final ReindexMode mode;
+        private final long total;
+        private final long processedAtStart;
+        private final boolean forceOcr;
+        private final long startedAtMillis = System.currentTimeMillis();
+
+        private volatile long processed;
+        private volatile long checkpoint;
+        private volatile boolean cancelled;
+        private volatile String status = "running";
+
+        private RunState(long runId, ReindexMode mode, long total, long processed, long checkpoint, boolean forceOcr) {
+            this.runId = runId;
+            this.mode = mode;
+            this.total = total;
+            this.processedAtStart = processed;
+            this.processed = processed;
+            this.checkpoint = checkpoint;
+            this.forceOcr = forceOcr;
+        }
+    }
+
+    public record ReindexProgress(
+            Long runId,
+            ReindexMode mode,
+            long processed,
+            long total,
+            double percent,
+            String etaHms,
+            String estimatedFinishTime,
+            long checkpointFileId,
+            String status
+    ) {
+    }
+}
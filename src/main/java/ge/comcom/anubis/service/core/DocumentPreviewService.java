@@ -1,16 +1,11 @@
 package ge.comcom.anubis.service.core;
 
 import ge.comcom.anubis.config.DocumentPreviewProperties;
+import ge.comcom.anubis.service.SingleFlightService;
 import ge.comcom.anubis.service.core.FileService.FileDownload;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.imaging.Imaging;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
@@ -22,16 +17,12 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.Locale;
 
 /**
@@ -48,41 +39,84 @@ public class DocumentPreviewService {
     private final FileService fileService;
     private final RestTemplate gotenbergRestTemplate;
     private final DocumentPreviewProperties properties;
+    private final ImagePdfConverter imagePdfConverter;
+    private final PdfLinearizer pdfLinearizer;
+    private final SingleFlightService singleFlight;
+    private final PreviewCache previewCache;
 
     /**
-     * Возвращает превью: PDF или fallback-изображение (no_preview.jpg)
+     * Возвращает превью: PDF или fallback-изображение (no_preview.jpg).
+     * Одновременные запросы превью одного и того же бинаря (по sha256) строят его один раз,
+     * а построенный PDF сохраняется в {@link PreviewCache} для следующих запросов частей документа.
      */
     public PreviewDocument renderPreview(Long fileId) throws IOException {
-        FileDownload download = fileService.loadFile(fileId);
-        var file = download.getFile();
-        String filename = file.getFileName();
-        String mimeType = file.getBinary() != null ? file.getBinary().getMimeType() : null;
-
         if (!properties.isEnabled()) {
             throw new IllegalStateException("Document preview service disabled");
         }
 
-        // 1. PDF — пропускаем как есть
-        if (isPdf(mimeType, filename)) {
-            return new PreviewDocument(appendPdfExtension(filename), download.getContent());
+        var fingerprint = fileService.findBinaryFingerprint(fileId).orElse(null);
+        String sha256 = fingerprint != null ? fingerprint.getSha256() : null;
+        String key = sha256 != null ? sha256 : "file-" + fileId;
+
+        byte[] cached = sha256 != null ? previewCache.get(sha256) : null;
+        if (cached != null) {
+            return new PreviewDocument(appendPdfExtension(fingerprint.getFileName()), cached);
+        }
+
+        PreviewDocument preview = singleFlight.execute("preview", key, () -> {
+            PreviewDocument built = buildPreview(fileId);
+            // Заглушку не кэшируем: Gotenberg мог быть недоступен временно
+            if (sha256 != null && MediaType.APPLICATION_PDF.equals(built.mediaType())) {
+                previewCache.put(sha256, built.content());
+            }
+            return built;
+        });
+
+        // Лидер мог строить превью для другого файла с тем же содержимым — имя берём своё
+        if (fingerprint != null && MediaType.APPLICATION_PDF.equals(preview.mediaType())) {
+            return new PreviewDocument(appendPdfExtension(fingerprint.getFileName()), preview.content());
         }
+        return preview;
+    }
+
+    private PreviewDocument buildPreview(Long fileId) throws IOException {
+        var fingerprint = fileService.findBinaryFingerprint(fileId).orElse(null);
+        String filename = fingerprint != null ? fingerprint.getFileName() : null;
+        String mimeType = fingerprint != null ? fingerprint.getMimeType() : null;
 
-        // 2. Изображения (включая PSD, TIFF) — локальная конвертация
-        if (isImageFile(mimeType, filename)) {
-            try {
+        // 1. Изображения (включая PSD, TIFF) — локальная конвертация потоком, без загрузки исходника в память
+        if (!isPdf(mimeType, filename) && isImageFile(mimeType, filename)) {
+            try (InputStream image = fileService.openStream(fileId)) {
                 log.debug("Local image to PDF conversion for {}", filename);
-                byte[] pdfBytes = convertPsdToPdf(download.getContent(), filename);
-                return new PreviewDocument(appendPdfExtension(filename), pdfBytes);
+                // Превью кэшируется массивом, поэтому PDF (уже уменьшенный до разрешения превью) собирается в памяти
+                ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+                imagePdfConverter.convert(image, filename, pdf);
+                return pdfPreview(filename, pdf.toByteArray());
             } catch (IOException e) {
                 log.warn("Local image conversion failed ({}), fallback to Gotenberg", e.getMessage());
-                return convertToPdfWithFallback(download);
+                return convertToPdfWithFallback(fileService.loadFile(fileId));
             }
         }
 
+        FileDownload download = fileService.loadFile(fileId);
+        var file = download.getFile();
+
+        // 2. PDF — пропускаем как есть
+        if (isPdf(mimeType, file.getFileName())) {
+            return pdfPreview(file.getFileName(), download.getContent());
+        }
+
         // 3. Остальные — через Gotenberg с fallback
         return convertToPdfWithFallback(download);
     }
 
+    /**
+     * Оборачивает PDF в превью; крупные документы линеаризуются для быстрого показа первой страницы.
+     */
+    private PreviewDocument pdfPreview(String filename, byte[] pdf) {
+        return new PreviewDocument(appendPdfExtension(filename), pdfLinearizer.linearizeIfNeeded(pdf));
+    }
+
     /**
      * Пытается конвертировать через Gotenberg, при ошибке — возвращает no_preview.jpg
      */
@@ -126,8 +160,7 @@ public class DocumentPreviewService {
             );
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                String pdfFilename = appendPdfExtension(filename);
-                return new PreviewDocument(pdfFilename, response.getBody());
+                return pdfPreview(filename, response.getBody());
             }
 
             log.warn("Gotenberg conversion failed with status {}, using no_preview.jpg", response.getStatusCode());
@@ -272,64 +305,4 @@ public class DocumentPreviewService {
 
         return total > 0 && (black * 100 / total) > 95;
     }
-
-    private BufferedImage readPsdWithImageIO(byte[] bytes) throws IOException {
-        try (ImageInputStream input = ImageIO.createImageInputStream(new java.io.ByteArrayInputStream(bytes))) {
-            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
-            if (!readers.hasNext()) {
-                return null;
-            }
-            ImageReader reader = readers.next();
-            reader.setInput(input);
-            BufferedImage img = reader.read(0);
-            reader.dispose();
-            return img;
-        }
-    }
-
-    private byte[] convertPsdToPdf(byte[] psdBytes, String filename) throws IOException {
-        BufferedImage image = readPsdWithImageIO(psdBytes);
-        if (image == null) {
-            throw new IOException("Failed to read PSD: no merged preview layer");
-        }
-
-        // Ensure ARGB
-        BufferedImage argbImage = toArgb(image);
-
-        try (PDDocument doc = new PDDocument()) {
-            PDPage page = new PDPage(new PDRectangle(argbImage.getWidth(), argbImage.getHeight()));
-            doc.addPage(page);
-
-            // Encode as PNG to preserve alpha
-            ByteArrayOutputStream pngOut = new ByteArrayOutputStream();
-            if (!ImageIO.write(argbImage, "png", pngOut)) {
-                throw new IOException("Failed to encode image as PNG");
-            }
-
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(
-                    doc, pngOut.toByteArray(), filename
-            );
-
-            try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
-                content.drawImage(pdImage, 0, 0, argbImage.getWidth(), argbImage.getHeight());
-            }
-
-            ByteArrayOutputStream pdfOut = new ByteArrayOutputStream();
-            doc.save(pdfOut);
-            return pdfOut.toByteArray();
-        }
-    }
-
-
-    private BufferedImage toArgb(BufferedImage src) {
-        if (src.getType() == BufferedImage.TYPE_INT_ARGB) {
-            return src;
-        }
-        BufferedImage argb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = argb.createGraphics();
-        g.setComposite(AlphaComposite.Src);
-        g.drawImage(src, 0, 0, null);
-        g.dispose();
-        return argb;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.SearchProperties;
+import ge.comcom.anubis.dto.FacetDto;
+import ge.comcom.anubis.dto.FacetValueDto;
+import ge.comcom.anubis.enums.FacetKind;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Фасеты результатов поиска и представлений: число версий по типу объекта, классу и элементам
+ * выбранных VALUELIST-свойств.
+ * <p>
+ * Все фасеты считаются одним агрегирующим запросом по набору найденных версий; в каждом фасете
+ * возвращаются самые частые значения (не больше лимита) и общее число различных значений.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FacetService {
+
+    private static final String FACET_COUNTS = """
+            WITH ids AS (
+                SELECT DISTINCT unnest(CAST(:versionIds AS bigint[])) AS version_id
+            ),
+            facet_values AS (
+                SELECT 'OBJECT_TYPE' AS facet, 0 AS property_def_id, o.object_type_id AS value_id, v.version_id
+                FROM ids
+                JOIN object_version v ON v.version_id = ids.version_id
+                JOIN "object" o ON o.object_id = v.object_id
+                UNION ALL
+                SELECT 'CLASS', 0, o.class_id, v.version_id
+                FROM ids
+                JOIN object_version v ON v.version_id = ids.version_id
+                JOIN "object" o ON o.object_id = v.object_id
+                WHERE o.class_id IS NOT NULL
+                UNION ALL
+                SELECT 'PROPERTY', pv.property_def_id, pv.value_list_item_id, pv.object_version_id
+                FROM ids
+                JOIN property_value pv ON pv.object_version_id = ids.version_id
+                JOIN property_def d ON d.property_def_id = pv.property_def_id AND d.data_type = 'VALUELIST'
+                WHERE pv.property_def_id = ANY(:propertyDefIds) AND pv.value_list_item_id IS NOT NULL
+                UNION ALL
+                SELECT 'PROPERTY', pv.property_def_id, m.value_list_item_id, pv.object_version_id
+                FROM ids
+                JOIN property_value pv ON pv.object_version_id = ids.version_id
+                JOIN property_def d ON d.property_def_id = pv.property_def_id AND d.data_type = 'VALUELIST'
+                JOIN property_value_multi m ON m.property_value_id = pv.property_value_id
+                WHERE pv.property_def_id = ANY(:propertyDefIds)
+            ),
+            counted AS (
+                SELECT facet, property_def_id, value_id, count(DISTINCT version_id) AS cnt
+                FROM facet_values
+                GROUP BY facet, property_def_id, value_id
+            ),
+            ranked AS (
+                SELECT c.*,
+                       row_number() OVER (PARTITION BY facet, property_def_id ORDER BY cnt DESC, value_id) AS rn,
+                       count(*) OVER (PARTITION BY facet, property_def_id) AS value_count
+                FROM counted c
+            )
+            SELECT r.facet, r.property_def_id, d.name, r.value_id,
+                   CASE r.facet WHEN 'OBJECT_TYPE' THEN t.name WHEN 'CLASS' THEN cl.name ELSE li.value_text END,
+                   r.cnt, r.value_count
+            FROM ranked r
+            LEFT JOIN object_type t ON r.facet = 'OBJECT_TYPE' AND t.object_type_id = r.value_id
+            LEFT JOIN "class" cl ON r.facet = 'CLASS' AND cl.class_id = r.value_id
+            LEFT JOIN value_list_item li ON r.facet = 'PROPERTY' AND li.item_id = r.value_id
+            LEFT JOIN property_def d ON r.facet = 'PROPERTY' AND d.property_def_id = r.property_def_id
+            WHERE r.rn <= :limit
+            ORDER BY r.facet, r.property_def_id, r.rn
+            """;
+
+    private final SearchProperties searchProperties;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * @param versionIds     найденные версии, уже отфильтрованные по правам чтения пользователя
+     *                       (по одной на объект, если считаются объекты)
+     * @param propertyDefIds VALUELIST-свойства, по которым нужны фасеты; остальные игнорируются
+     * @param limit          сколько значений вернуть в каждом фасете
+     */
+    @Transactional(readOnly = true)
+    public List<FacetDto> countFacets(Collection<Long> versionIds, Collection<Long> propertyDefIds, Integer limit) {
+        if (versionIds == null || versionIds.isEmpty()) {
+            return List.of();
+        }
+        int perFacet = Math.min(Math.max(1, limit != null ? limit : searchProperties.getFacetLimit()),
+                searchProperties.getMaxFacetLimit());
+        Long[] defIds = propertyDefIds != null ? propertyDefIds.toArray(new Long[0]) : new Long[0];
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(FACET_COUNTS)
+                .setParameter("versionIds", versionIds.toArray(new Long[0]))
+                .setParameter("propertyDefIds", defIds)
+                .setParameter("limit", perFacet)
+                .getResultList();
+
+        Map<String, FacetDto> facets = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            FacetKind kind = FacetKind.valueOf((String) row[0]);
+            Long defId = kind == FacetKind.PROPERTY ? ((Number) row[1]).longValue() : null;
+            FacetDto facet = facets.computeIfAbsent(kind + ":" + defId, key -> FacetDto.builder()
+                    .kind(kind)
+                    .propertyDefId(defId)
+                    .propertyName((String) row[2])
+                    .values(new ArrayList<>())
+                    .valueCount(((Number) row[6]).longValue())
+                    .build());
+            facet.getValues().add(FacetValueDto.builder()
+                    .id(((Number) row[3]).longValue())
+                    .name((String) row[4])
+                    .count(((Number) row[5]).longValue())
+                    .build());
+        }
+
+        log.debug("Facets over {} version(s), property defs {} -> {} facet(s)",
+                versionIds.size(), propertyDefIds, facets.size());
+        return new ArrayList<>(facets.values());
+    }
+}
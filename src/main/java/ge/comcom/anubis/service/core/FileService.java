@@ -6,6 +6,7 @@ import ge.comcom.anubis.dto.ObjectFileDto;
 import ge.comcom.anubis.entity.core.FileStorageEntity;
 import ge.comcom.anubis.entity.core.ObjectFileEntity;
 import ge.comcom.anubis.entity.core.ObjectVersionEntity;
+import ge.comcom.anubis.enums.IndexJobPriority;
 import ge.comcom.anubis.enums.VersionChangeType;
 import ge.comcom.anubis.mapper.ObjectFileMapper;
 import ge.comcom.anubis.repository.core.ObjectFileRepository;
@@ -14,15 +15,18 @@ import ge.comcom.anubis.service.storage.VaultService;
 import ge.comcom.anubis.util.UserContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Comparator;
 import java.util.stream.Collectors;
 
@@ -43,9 +47,10 @@ public class FileService {
     private final VaultService vaultService;   // 🔹 для определения vault → storage
     private final ObjectVersionAuditService auditService;
     private final StorageStrategyRegistry strategyRegistry;
-    private final FullTextSearchService fullTextSearchService;
+    private final IndexJobQueueService indexJobQueue;
     private final ObjectFileMapper objectFileMapper;
     private final FileBinaryRepository binaryRepository;
+    private final FullTextQueryCache fullTextQueryCache;
 
     private static final String DEFAULT_VERSION_COMMENT = "Auto-version from upload";
 
@@ -119,6 +124,14 @@ public class FileService {
                 .orElseThrow(() -> new IllegalArgumentException("File not found: " + id));
     }
 
+    /**
+     * Returns file name, binary sha256 and MIME type without loading binary content.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ObjectFileRepository.BinaryFingerprint> findBinaryFingerprint(Long fileId) {
+        return fileRepository.findBinaryFingerprint(fileId);
+    }
+
     /**
      * Creates or updates a logical link between a file metadata entry and a version.
      * Allows clients to attach existing binary content or rename metadata without uploading new content.
@@ -158,6 +171,8 @@ public class FileService {
 
 
         ObjectFileEntity saved = fileRepository.save(entity);
+        // Файл с уже извлечённым текстом того же бинаря сразу находится поиском
+        fullTextQueryCache.invalidateAfterCommit();
 
         auditService.logAction(
                 targetVersion,
@@ -242,6 +257,7 @@ public class FileService {
             // 5. Привязываем файл к версии
             entity.setVersion(version);
             savedFile = fileRepository.save(entity);
+            fullTextQueryCache.invalidateAfterCommit();
 
             // 6. Асинхронная индексация
             if (!effectiveOptions.isSkipIndexing()) {
@@ -303,6 +319,17 @@ public class FileService {
         return new FileDownload(file, data);
     }
 
+    /**
+     * Opens the file content as a stream from its storage instead of loading it into an array.
+     */
+    @Transactional(readOnly = true)
+    public InputStream openStream(Long fileId) throws IOException {
+        ObjectFileEntity file = getFile(fileId);
+        Hibernate.initialize(file.getBinary());
+        Hibernate.initialize(file.getStorage());
+        return strategyRegistry.resolveFor(file).openStream(file);
+    }
+
     @Transactional
     public void deleteFile(Long fileId) {
         ObjectFileEntity file = getFile(fileId);
@@ -475,13 +502,11 @@ public class FileService {
         }
     }
 
+    /**
+     * Ставит файл в очередь индексации в текущей транзакции: задача появится только вместе с файлом.
+     */
     private void triggerAsyncIndexing(ObjectFileEntity fileEntity) {
-        try {
-            fullTextSearchService.indexObjectFile(fileEntity);
-        } catch (Exception ex) {
-            log.error("Failed to schedule indexing for file {}: {}", fileEntity.getId(), ex.getMessage(), ex);
-            // Можно добавить аудит: "Indexing failed"
-        }
+        indexJobQueue.enqueue(fileEntity.getId(), IndexJobPriority.INTERACTIVE);
     }
 
     public record FileLinkResult(ObjectFileDto file, boolean created) { }
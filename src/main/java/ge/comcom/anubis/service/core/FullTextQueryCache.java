@@ -0,0 +1,238 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.SearchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов FTS: нормализованный запрос → множество найденных version_id (RoaringBitmap).
+ * <p>
+ * Каждая запись помечена поколением индекса. Поколение увеличивается после фиксации любой транзакции,
+ * которая меняет найденные версии (фрагменты текста, поисковые документы версий, привязка файлов),
+ * и все записи предыдущего поколения становятся недействительными. Результат, посчитанный во время
+ * такой записи, в кэш не попадает.
+ * <p>
+ * Размер ограничен числом записей и суммарным размером множеств; вытесняются давно не использованные.
+ * Вызывающий получает копию множества и может её менять, не затрагивая кэш.
+ * <p>
+ * Сброс публикуется другим экземплярам приложения через последовательность search_index_generation_seq:
+ * после фиксации записи в индекс она увеличивается, а каждый экземпляр раз в {@code sync-interval}
+ * сверяет её значение с прочитанным ранее и при расхождении сбрасывает свой кэш. Запись в индекс на другом
+ * экземпляре становится видна не позже чем через этот интервал.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FullTextQueryCache {
+
+    private static final String BUMP_SHARED_GENERATION = "SELECT nextval('search_index_generation_seq')";
+    private static final String SHARED_GENERATION = "SELECT last_value FROM search_index_generation_seq";
+
+    private final SearchProperties searchProperties;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ScheduledExecutorService sync = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fts-query-cache-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong generation = new AtomicLong();
+    /** Последнее прочитанное значение общего поколения; -1 — ещё не прочитано. */
+    private volatile long sharedGeneration = -1;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = meterRegistry.counter("anubis.search.query-cache", "result", "hit");
+        misses = meterRegistry.counter("anubis.search.query-cache", "result", "miss");
+        Gauge.builder("anubis.search.query-cache.bytes", this, FullTextQueryCache::getTotalBytes)
+                .description("Memory held by cached FTS result bitmaps")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Общее поколение проверяется, даже если кэш выключен: по поколению сверяет FTS-записи и кэш
+     * результатов представлений.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSync() {
+        long interval = Math.max(100, searchProperties.getQueryCache().getSyncInterval().toMillis());
+        sync.scheduleWithFixedDelay(this::pollSharedGeneration, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sync.shutdownNow();
+    }
+
+    /**
+     * Найденные версии из кэша или посчитанные {@code loader}; возвращается копия.
+     *
+     * @param function функция разбора запроса (plainto_tsquery / websearch_to_tsquery) и область поиска —
+     *                 часть ключа
+     */
+    public RoaringBitmap get(String function, String queryText, Supplier<RoaringBitmap> loader) {
+        SearchProperties.QueryCache settings = searchProperties.getQueryCache();
+        if (!settings.isEnabled()) {
+            return loader.get();
+        }
+
+        String key = function + ":" + normalize(queryText);
+        long startGeneration = generation.get();
+        Optional<RoaringBitmap> cached = lookup(key, startGeneration);
+        if (cached.isPresent()) {
+            hits.increment();
+            return cached.get().clone();
+        }
+
+        misses.increment();
+        RoaringBitmap loaded = loader.get();
+        loaded.runOptimize();
+        store(key, new Entry(loaded, startGeneration, loaded.getSizeInBytes()), settings);
+        return loaded.clone();
+    }
+
+    /**
+     * Сбрасывает кэш после фиксации текущей транзакции (или сразу, если транзакции нет).
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate();
+            }
+        });
+    }
+
+    /**
+     * Сбрасывает кэш этого экземпляра и публикует сброс остальным. Вызывается после фиксации записи
+     * в индекс, иначе другой экземпляр может заново закэшировать ещё не зафиксированное состояние.
+     */
+    public void invalidate() {
+        invalidateLocal();
+        publish();
+    }
+
+    private void invalidateLocal() {
+        generation.incrementAndGet();
+        synchronized (this) {
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    private void publish() {
+        try {
+            // Вызов может идти из afterCommit: транзакция вызывающего уже зафиксирована
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            tx.executeWithoutResult(status -> em.createNativeQuery(BUMP_SHARED_GENERATION).getSingleResult());
+        } catch (Exception e) {
+            // Другие экземпляры увидят запись при следующем сбросе; локальный кэш уже сброшен
+            log.warn("Cannot publish FTS index generation: {}", e.getMessage());
+        }
+    }
+
+    private void pollSharedGeneration() {
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            Number current = tx.execute(status -> (Number) em.createNativeQuery(SHARED_GENERATION).getSingleResult());
+            long value = current.longValue();
+            if (sharedGeneration >= 0 && value != sharedGeneration) {
+                log.debug("FTS index generation changed on another instance ({} -> {}), dropping query cache",
+                        sharedGeneration, value);
+                invalidateLocal();
+            }
+            sharedGeneration = value;
+        } catch (Exception e) {
+            log.warn("Cannot read FTS index generation: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Поколение индекса: меняется при каждом сбросе кэша, то есть после каждой записи в индекс
+     * на этом или (с задержкой до {@code sync-interval}) на другом экземпляре.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized Optional<RoaringBitmap> lookup(String key, long currentGeneration) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.generation() == currentGeneration
+                ? Optional.of(entry.versionIds())
+                : Optional.empty();
+    }
+
+    private synchronized void store(String key, Entry entry, SearchProperties.QueryCache settings) {
+        // Индекс изменился, пока выполнялся запрос: результат может быть неполным
+        if (entry.generation() != generation.get()) {
+            return;
+        }
+        long maxBytes = settings.getMaxSize().toBytes();
+        if (entry.bytes() > maxBytes) {
+            log.debug("FTS result for '{}' ({} bytes) exceeds the query cache size, not cached", key, entry.bytes());
+            return;
+        }
+
+        Entry previous = entries.put(key, entry);
+        totalBytes += entry.bytes() - (previous != null ? previous.bytes() : 0);
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > settings.getMaxEntries() || totalBytes > maxBytes) && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().bytes();
+            eldest.remove();
+        }
+    }
+
+    private static String normalize(String queryText) {
+        return queryText.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(RoaringBitmap versionIds, long generation, long bytes) { }
+}
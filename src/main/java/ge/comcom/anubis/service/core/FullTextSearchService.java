@@ -1,14 +1,30 @@
 package ge.comcom.anubis.service.core;
 
 import ge.comcom.anubis.config.LanguageDetectProperties;
+import ge.comcom.anubis.config.SearchProperties;
+import ge.comcom.anubis.config.TextExtractionProperties;
 import ge.comcom.anubis.dto.ws.FileStatusMessage;
+import ge.comcom.anubis.dto.FacetDto;
+import ge.comcom.anubis.dto.ObjectFileDto;
+import ge.comcom.anubis.dto.SearchHitDto;
+import ge.comcom.anubis.dto.SearchResultPageDto;
+import ge.comcom.anubis.entity.core.BinaryText;
 import ge.comcom.anubis.entity.core.ObjectFileEntity;
-import ge.comcom.anubis.entity.core.SearchTextCache;
+import ge.comcom.anubis.enums.FtsLanguage;
+import ge.comcom.anubis.enums.IndexJobPriority;
+import ge.comcom.anubis.enums.SearchScope;
 import ge.comcom.anubis.integration.ocr.RemoteOcrClient;
 import ge.comcom.anubis.integration.ocr.RemoteOcrResponse;
+import ge.comcom.anubis.repository.core.BinaryTextRepository;
 import ge.comcom.anubis.repository.core.ObjectFileRepository;
-import ge.comcom.anubis.repository.core.SearchTextCacheRepository;
+import ge.comcom.anubis.service.SingleFlightService;
 import ge.comcom.anubis.service.SocketNotifierService;
+import ge.comcom.anubis.service.security.AclResolverService;
+import ge.comcom.anubis.service.security.AclService;
+import ge.comcom.anubis.service.storage.FileStorageStrategy;
+import ge.comcom.anubis.service.storage.StorageStrategyRegistry;
+import ge.comcom.anubis.util.TextChunker;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -16,21 +32,24 @@ import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.langdetect.optimaize.OptimaizeLangDetector;
+import org.hibernate.Hibernate;
 import org.apache.tika.language.detect.LanguageDetector;
 import org.apache.tika.language.detect.LanguageResult;
-import org.springframework.scheduling.annotation.Async;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -38,10 +57,234 @@ import java.util.Set;
 public class FullTextSearchService {
 
     private final ObjectFileRepository fileRepository;
-    private final SearchTextCacheRepository cacheRepository;
     private final RemoteOcrClient remoteOcrClient;
+    private final LocalTextExtractor localTextExtractor;
     private final LanguageDetectProperties languageDetectProperties;
     private final SocketNotifierService socketNotifierService;
+    private final SingleFlightService singleFlight;
+    private final IndexJobQueueService indexJobQueue;
+    private final BinaryTextRepository binaryTextRepository;
+    private final MeterRegistry meterRegistry;
+    private final FileService fileService;
+    private final StorageStrategyRegistry storageStrategyRegistry;
+    private final SearchProperties searchProperties;
+    private final TextExtractionProperties textExtractionProperties;
+    private final FacetService facetService;
+    private final FullTextQueryCache queryCache;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Строка object_file f действует до версии v включительно, если в промежутке этот бинарь
+     * не помечен удалённым.
+     */
+    private static final String NOT_DELETED_UP_TO_VERSION = """
+              AND NOT EXISTS (
+                  SELECT 1
+                  FROM object_file d
+                  JOIN object_version dv ON dv.version_id = d.object_version_id
+                  WHERE d.binary_id = f.binary_id
+                    AND d.deleted
+                    AND dv.object_id = fv.object_id
+                    AND d.object_version_id > f.object_version_id
+                    AND d.object_version_id <= v.version_id
+              )
+            """;
+
+    /**
+     * tsquery для каждого языка ({@link FtsLanguage}): q_en, q_ru, q_simple.
+     * {@code %1$s} — функция разбора запроса (plainto_tsquery / websearch_to_tsquery).
+     */
+    private static final String LANGUAGE_QUERIES = Arrays.stream(FtsLanguage.values())
+            .map(language -> "%%1$s('%s', :query) AS q_%s".formatted(language.config(), language.code()))
+            .collect(Collectors.joining(", ", "SELECT ", ""));
+
+    /**
+     * Вектор каждой строки сравнивается с запросом в конфигурации её языка; условие по fts_language
+     * совпадает с предикатом частичного GIN-индекса этого языка.
+     */
+    private static final String LANGUAGE_MATCH = Arrays.stream(FtsLanguage.values())
+            .map(language -> "(t.fts_language = '%s' AND t.chunk_vector @@ q.q_%s)"
+                    .formatted(language.code(), language.code()))
+            .collect(Collectors.joining(" OR ", "(", ")"));
+
+    private static final String ROW_QUERY = Arrays.stream(FtsLanguage.values())
+            .map(language -> "WHEN '%s' THEN q.q_%s".formatted(language.code(), language.code()))
+            .collect(Collectors.joining(" ", "CASE t.fts_language ", " END"));
+
+    private static final String ROW_CONFIG = Arrays.stream(FtsLanguage.values())
+            .map(language -> "WHEN '%s' THEN '%s'::regconfig".formatted(language.code(), language.config()))
+            .collect(Collectors.joining(" ", "CASE t.fts_language ", " END"));
+
+    /** tsquery каждого языка для слова {@code c.term}, как {@link #LANGUAGE_QUERIES} для запроса. */
+    private static final String TERM_QUERIES = Arrays.stream(FtsLanguage.values())
+            .map(language -> "plainto_tsquery('%s', c.term) AS q_%s".formatted(language.config(), language.code()))
+            .collect(Collectors.joining(", ", "SELECT ", ""));
+
+    /**
+     * Термины из {@code :terms} (в исходном порядке), которые встречаются хотя бы в одном документе,
+     * доступном {@code :aclUserId} на чтение: в тексте файла или в свойствах версии. Для файла проверяется
+     * ACL версии, к которой он прикреплён, — это строже, чем видимость в последующих версиях, поэтому
+     * термин недоступного документа в ответ не попадает.
+     */
+    private static final String READABLE_TERMS = """
+            SELECT c.term
+            FROM unnest(CAST(:terms AS text[])) WITH ORDINALITY AS c(term, ord)
+            CROSS JOIN LATERAL (%s) q
+            WHERE EXISTS (
+                SELECT 1
+                FROM binary_text_chunk t
+                JOIN file_binary b ON b.sha256 = t.sha256
+                JOIN object_file f ON f.binary_id = b.binary_id AND NOT f.deleted
+                JOIN object_version v ON v.version_id = f.object_version_id
+                JOIN "object" o ON o.object_id = v.object_id AND NOT o.is_deleted
+            """.formatted(TERM_QUERIES) + AclResolverService.EFFECTIVE_ACL_JOINS + """
+                WHERE %s AND %s IN (%s)
+            )
+            OR EXISTS (
+                SELECT 1
+                FROM version_search_document d
+                JOIN object_version v ON v.version_id = d.version_id
+                JOIN "object" o ON o.object_id = v.object_id AND NOT o.is_deleted
+            """.formatted(LANGUAGE_MATCH, AclResolverService.EFFECTIVE_ACL, AclService.READABLE_ACL_IDS)
+            + AclResolverService.EFFECTIVE_ACL_JOINS + """
+                WHERE d.document @@ q.q_simple AND %s IN (%s)
+            )
+            ORDER BY c.ord
+            """.formatted(AclResolverService.EFFECTIVE_ACL, AclService.READABLE_ACL_IDS);
+
+    /**
+     * Версии, совпавшие по метаданным ({@code :includeMetadata}): по значениям свойств
+     * (version_search_document) или по имени объекта. Имя хранится только в "object" и относится ко всем
+     * его версиям, поэтому переименование не пересобирает документы; условие совпадает с выражением
+     * индекса idx_object_name_fts. Ожидает CTE {@code q}.
+     */
+    private static final String METADATA_HITS = """
+                SELECT d.version_id
+                FROM version_search_document d, q
+                WHERE :includeMetadata AND d.document @@ q.q_simple
+                UNION
+                SELECT v.version_id
+                FROM "object" o
+                JOIN object_version v ON v.object_id = o.object_id
+                CROSS JOIN q
+                WHERE :includeMetadata AND to_tsvector('simple', coalesce(o.name, '')) @@ q.q_simple
+            """;
+
+    /**
+     * Версии, в которых найден запрос: в тексте видимого файла ({@code :includeContent}) и/или по
+     * метаданным ({@link #METADATA_HITS}). Строка object_file действует от своей
+     * версии во всех последующих версиях объекта, пока этот бинарь не помечен удалённым, поэтому новые
+     * версии с теми же файлами находятся без повторного извлечения текста.
+     */
+    private static final String MATCHING_VERSIONS = """
+            WITH q AS (%s),
+            matched AS (
+                SELECT DISTINCT t.sha256
+                FROM binary_text_chunk t, q
+                WHERE :includeContent AND %s
+            )
+            %s
+            UNION
+            SELECT v.version_id
+            FROM matched m
+            JOIN file_binary b ON b.sha256 = m.sha256
+            JOIN object_file f ON f.binary_id = b.binary_id AND NOT f.deleted
+            JOIN object_version fv ON fv.version_id = f.object_version_id
+            JOIN object_version v ON v.object_id = fv.object_id AND v.version_id >= f.object_version_id
+            WHERE TRUE
+            """.formatted(LANGUAGE_QUERIES, LANGUAGE_MATCH, METADATA_HITS.strip()) + NOT_DELETED_UP_TO_VERSION;
+
+    /**
+     * Ранжированные объекты: для каждого неудалённого объекта — последняя версия, в которой найден запрос
+     * и действующий ACL которой пользователь {@code :aclUserId} может читать. Имена и сниппеты недоступных
+     * документов в ответ не попадают, общее число считается по тому же отфильтрованному набору.
+     * <p>
+     * Ранг версии — сумма ранга её метаданных (имя объекта — вес A, свойства — B) и лучшего
+     * ts_rank_cd среди фрагментов видимых файлов. Текст файлов хранится без весов (D), поэтому
+     * при ранжировании ему назначается вес C. Нормализация 32: rank / (rank + 1). Найденный фрагмент
+     * используется для сниппета.
+     */
+    private static final String RANKED_OBJECTS = """
+            WITH q AS (%s),
+            hits AS (
+                SELECT DISTINCT ON (t.sha256)
+                       t.sha256, t.chunk_no, ts_rank_cd('{0.2, 0.2, 0.4, 1.0}', t.chunk_vector, %s, 32) AS rank
+                FROM binary_text_chunk t, q
+                WHERE :includeContent AND %s
+                ORDER BY t.sha256, rank DESC
+            ),
+            content AS (
+                SELECT DISTINCT ON (v.version_id)
+                       fv.object_id, v.version_id, f.file_id, f.file_name, h.sha256, h.chunk_no, h.rank
+                FROM hits h
+                JOIN file_binary b ON b.sha256 = h.sha256
+                JOIN object_file f ON f.binary_id = b.binary_id AND NOT f.deleted
+                JOIN object_version fv ON fv.version_id = f.object_version_id
+                JOIN object_version v ON v.object_id = fv.object_id AND v.version_id >= f.object_version_id
+                WHERE TRUE
+            """.formatted(LANGUAGE_QUERIES, ROW_QUERY, LANGUAGE_MATCH) + NOT_DELETED_UP_TO_VERSION + """
+                ORDER BY v.version_id, h.rank DESC
+            ),
+            meta AS (
+                SELECT o.object_id, v.version_id,
+                       ts_rank_cd(setweight(to_tsvector('simple', coalesce(o.name, '')), 'A')
+                                      || coalesce(d.document, ''::tsvector), q.q_simple, 32) AS rank
+                FROM (
+            """ + METADATA_HITS + """
+                ) h
+                JOIN object_version v ON v.version_id = h.version_id
+                JOIN "object" o ON o.object_id = v.object_id
+                LEFT JOIN version_search_document d ON d.version_id = v.version_id
+                CROSS JOIN q
+            ),
+            per_version AS (
+                SELECT coalesce(c.object_id, m.object_id) AS object_id,
+                       coalesce(c.version_id, m.version_id) AS version_id,
+                       c.file_id, c.file_name, c.sha256, c.chunk_no,
+                       coalesce(c.rank, 0) + coalesce(m.rank, 0) AS rank
+                FROM content c
+                FULL JOIN meta m ON m.version_id = c.version_id
+            ),
+            visible AS (
+                SELECT DISTINCT ON (pv.object_id) pv.*
+                FROM per_version pv
+                JOIN "object" o ON o.object_id = pv.object_id AND NOT o.is_deleted
+                JOIN object_version v ON v.version_id = pv.version_id
+            """ + AclResolverService.EFFECTIVE_ACL_JOINS + """
+                WHERE %s IN (%s)
+                ORDER BY pv.object_id, pv.version_id DESC
+            )
+            """.formatted(AclResolverService.EFFECTIVE_ACL, AclService.READABLE_ACL_IDS);
+
+    /**
+     * Страница результатов; ts_headline считается только для строк страницы: по найденному фрагменту
+     * файла, а если совпали только метаданные — по имени и свойствам.
+     */
+    private static final String RANKED_PAGE = RANKED_OBJECTS + """
+            SELECT p.object_id, o.name, p.version_id, p.file_id, p.file_name, p.rank,
+                   coalesce(ts_headline(%s, t.chunk_text, %s, :headline),
+                            ts_headline('simple', concat_ws(' — ', o.name, d.properties_text), q.q_simple, :headline))
+            FROM (
+                SELECT * FROM visible
+                ORDER BY rank DESC, object_id
+                LIMIT :limit OFFSET :offset
+            ) p
+            LEFT JOIN binary_text_chunk t ON t.sha256 = p.sha256 AND t.chunk_no = p.chunk_no
+            LEFT JOIN version_search_document d ON d.version_id = p.version_id
+            JOIN "object" o ON o.object_id = p.object_id
+            CROSS JOIN q
+            ORDER BY p.rank DESC, p.object_id
+            """.formatted(ROW_CONFIG, ROW_QUERY);
+
+    /** Версии всех найденных объектов (по одной на объект) для подсчёта фасетов. */
+    private static final String RANKED_VERSION_IDS = RANKED_OBJECTS + """
+            SELECT version_id FROM visible
+            """;
+
+    /** Число найденных объектов, но не больше :cap. */
+    private static final String RANKED_COUNT = RANKED_OBJECTS + """
+            SELECT count(*) FROM (SELECT 1 FROM visible LIMIT :cap) c
+            """;
 
     private LanguageDetector languageDetector;
 
@@ -63,103 +306,176 @@ public class FullTextSearchService {
         }
     }
 
-    @Async
-    @Transactional
-    public void indexObjectFile(ObjectFileEntity fileEntity) {
+    /**
+     * Индексирует файл; вызывается воркером очереди index_job.
+     * Исключение означает неудачную попытку — задача будет повторена.
+     * <p>
+     * Метод не транзакционный: чтение содержимого, Tika и OCR идут минуты и не должны держать соединение
+     * с базой. Короткие транзакции открываются только для чтения файла и для записи текста.
+     *
+     * @param forceOcr игнорировать сохранённый текст бинаря и выполнить OCR заново
+     */
+    public void indexFile(Long fileId, boolean forceOcr) {
+        TransactionTemplate readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
+        // Связи, нужные для чтения содержимого, загружаются сразу: дальше сущность используется вне сессии
+        ObjectFileEntity fileEntity = readTx.execute(status -> fileRepository.findById(fileId)
+                .map(file -> {
+                    Hibernate.initialize(file.getBinary());
+                    Hibernate.initialize(file.getStorage());
+                    return file;
+                })
+                .orElse(null));
+        if (fileEntity == null) {
+            log.debug("File {} no longer exists. Skipping indexing.", fileId);
+            return;
+        }
+        indexObjectFile(fileEntity, forceOcr);
+    }
+
+    /**
+     * Сообщает клиентам об окончательной неудаче индексации файла.
+     */
+    @Transactional(readOnly = true)
+    public void notifyIndexingFailed(Long fileId, String errorMsg) {
+        Long versionId = fileRepository.findById(fileId)
+                .map(file -> file.getVersion() != null ? file.getVersion().getId() : null)
+                .orElse(null);
+        notifyFileIndexed(fileId, versionId, false,
+                String.format("Failed to extract text for file %d: %s", fileId, errorMsg));
+    }
+
+    private void indexObjectFile(ObjectFileEntity fileEntity, boolean forceOcr) {
         Long versionId = fileEntity.getVersion() != null ? fileEntity.getVersion().getId() : null;
         if (versionId == null) {
             log.warn("File {} has no linked version. Skipping indexing.", fileEntity.getId());
             return;
         }
 
-        File localFile = getLocalFile(fileEntity);
-        if (localFile == null || !localFile.exists()) {
-            log.warn("File for {} not found or cannot be accessed", fileEntity.getId());
+        // Текст хранится по бинарю: поиск находит все версии, в которых виден этот файл
+        BinaryText text = resolveText(fileEntity, forceOcr);
+        if (text == null) {
+            log.warn("No text extracted for version_id={}", versionId);
             return;
         }
 
-        try {
-            Optional<RemoteOcrResponse> responseOptional = remoteOcrClient.extract(localFile, fileEntity.getFileName());
+        log.info("Indexed file {} of version_id={} [{} chars]", fileEntity.getId(), versionId,
+                text.getExtractedTextRaw().length());
+        notifyFileIndexed(fileEntity.getId(), versionId, true, null);
+    }
+
+    /**
+     * Текст бинаря: из binary_text, если это содержимое уже извлекалось, иначе — внутри приложения
+     * ({@link LocalTextExtractor}) или, для изображений и сканов, через OCR-шлюз; результат сохраняется
+     * по sha256. Возвращает {@code null}, если текста нет.
+     */
+    private BinaryText resolveText(ObjectFileEntity fileEntity, boolean forceOcr) {
+        String sha256 = fileEntity.getBinary() != null ? fileEntity.getBinary().getSha256() : null;
+
+        if (sha256 != null && !forceOcr) {
+            Optional<BinaryText> stored = binaryTextRepository.findById(sha256);
+            if (stored.isPresent()) {
+                meterRegistry.counter("anubis.index.text.cache", "result", "hit").increment();
+                log.debug("Reusing extracted text of binary {} for file {}", sha256, fileEntity.getId());
+                return stored.get();
+            }
+        }
+        meterRegistry.counter("anubis.index.text.cache", "result", forceOcr ? "forced" : "miss").increment();
+
+        // Стратегия и бинарь определяются здесь, в потоке с открытой сессией; чтение потока идёт при извлечении
+        FileStorageStrategy storage = storageStrategyRegistry.resolveFor(fileEntity);
+        String key = sha256 != null ? sha256 : "file-" + fileEntity.getId();
+
+        String combined;
+        String route;
+        Optional<String> localText = extractLocal(fileEntity, storage, key);
+        if (localText.isPresent()) {
+            route = "local";
+            combined = sanitizeText(localText.get());
+        } else {
+            route = "remote";
+            Optional<RemoteOcrResponse> responseOptional = extractRemote(fileEntity, storage, key);
             if (responseOptional.isEmpty()) {
                 log.warn("Remote OCR returned empty result for file {}", fileEntity.getId());
-                return;
+                return null;
             }
 
             RemoteOcrResponse response = responseOptional.get();
             String tikaText = sanitizeText(response.tikaText());
             String ocrText = sanitizeText(response.ocrText());
-            String combined = sanitizeText(response.combinedText());
+            combined = sanitizeText(response.combinedText());
 
             if (combined.isBlank()) {
                 combined = mergeTexts(tikaText, ocrText).trim();
             }
+            log.debug("OCR gateway text of file {} [tika={}, ocr={}]", fileEntity.getId(),
+                    meaningfulLength(tikaText), meaningfulLength(ocrText));
+        }
+        meterRegistry.counter("anubis.index.extraction", "route", route).increment();
 
-            if (combined.isBlank()) {
-                log.warn("No text extracted for version_id={}", versionId);
-                return;
-            }
+        if (combined.isBlank()) {
+            return null;
+        }
 
-            SearchTextCache cache = new SearchTextCache();
-            cache.setObjectVersionId(versionId);
-            cache.setExtractedTextRaw(combined);
-
-            if (languageDetectProperties.isEnabled()) {
-                LanguageResult languageResult = detectLanguage(combined);
-                if (languageResult != null && !languageResult.isUnknown()) {
-                    cache.setDetectedLanguage(languageResult.getLanguage());
-                    cache.setLanguageConfidence(Double.valueOf(languageResult.getRawScore()));
-                    log.debug("Detected language: {} (confidence: {})", languageResult.getLanguage(), languageResult.getRawScore());
-                } else {
-                    log.debug("Language detection: unknown or failed");
-                }
+        BinaryText text = new BinaryText();
+        text.setSha256(sha256);
+        text.setExtractedTextRaw(combined);
+        text.setExtractedAt(Instant.now());
+
+        if (languageDetectProperties.isEnabled()) {
+            LanguageResult languageResult = detectLanguage(combined);
+            if (languageResult != null && !languageResult.isUnknown()) {
+                text.setDetectedLanguage(languageResult.getLanguage());
+                text.setLanguageConfidence(Double.valueOf(languageResult.getRawScore()));
+                log.debug("Detected language: {} (confidence: {})", languageResult.getLanguage(), languageResult.getRawScore());
+            } else {
+                log.debug("Language detection: unknown or failed");
             }
+        }
 
-            cacheRepository.save(cache);
-            log.info("Indexed version_id={} [combined={} chars, tika={}, ocr={}]", versionId,
-                    combined.length(), meaningfulLength(tikaText), meaningfulLength(ocrText));
-            notifyFileIndexed(fileEntity.getId(), versionId, true, null);
-        } catch (Exception e) {
-            String errorMessage = String.format(
-                    "Failed to extract text for file %d: %s",
-                    fileEntity.getId(),
-                    e.getMessage()
-            );
-            log.error(errorMessage, e);
-            notifyFileIndexed(fileEntity.getId(), versionId, false, errorMessage);
-        } finally {
-            if (localFile != null) {
-                try {
-                    Files.deleteIfExists(localFile.toPath());
-                } catch (IOException ignored) {
-                }
-            }
+        if (sha256 != null) {
+            saveText(sha256, combined, text);
         }
+        log.info("Extracted text of file {} [{} chars, {}]", fileEntity.getId(), combined.length(), route);
+        return text;
     }
 
-    private void notifyFileIndexed(Long fileId, Long versionId, boolean success, String errorMsg) {
-        String status = success ? "INDEXED" : "FAILED";
-        FileStatusMessage payload = new FileStatusMessage(fileId, versionId, status, errorMsg);
-//        socketNotifierService.toFileVersion(versionId, "FILE_STATUS", payload);
-        socketNotifierService.toAllFiles("FILE_STATUS", payload);
+    private void saveText(String sha256, String combined, BinaryText text) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // ON CONFLICT DO UPDATE держит блокировку строки до фиксации: параллельная индексация того же
+            // содержимого ждёт на upsert, поэтому удаление и вставка фрагментов не перемешиваются
+            binaryTextRepository.upsert(sha256, combined, text.getDetectedLanguage(), text.getLanguageConfidence());
+            // Поиск идёт по фрагментам: у каждого свой вектор, ts_headline читает только совпавший
+            List<String> chunks = TextChunker.split(combined, textExtractionProperties.getChunkSize());
+            binaryTextRepository.deleteChunks(sha256);
+            binaryTextRepository.insertChunks(sha256, chunks.toArray(new String[0]), text.getDetectedLanguage());
+            queryCache.invalidateAfterCommit();
+        });
     }
 
-    private File getLocalFile(ObjectFileEntity fileEntity) {
+    private Optional<String> extractLocal(ObjectFileEntity fileEntity, FileStorageStrategy storage, String key) {
         try {
-            if (fileEntity.getBinary() != null && fileEntity.getBinary().getContent() != null) {
-                String ext = extensionOf(fileEntity.getFileName());
-                if (ext.isBlank()) {
-                    ext = "bin";
-                }
-                File tmp = File.createTempFile("anubis-inline-", "." + ext);
-                try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
-                    out.write(fileEntity.getBinary().getContent());
-                }
-                return tmp;
-            }
+            return singleFlight.execute("tika", key,
+                    () -> localTextExtractor.extract(() -> storage.openStream(fileEntity), fileEntity.getFileName()));
         } catch (IOException e) {
-            log.error("Cannot create local copy for file {}: {}", fileEntity.getId(), e.getMessage());
+            throw new UncheckedIOException("Cannot read content of file " + fileEntity.getId(), e);
         }
-        return null;
+    }
+
+    /**
+     * Извлечение текста через OCR-шлюз. Одновременные запросы для одного и того же бинаря (по sha256)
+     * выполняют один вызов шлюза; текст сохраняет каждый вызывающий для своей версии.
+     */
+    private Optional<RemoteOcrResponse> extractRemote(ObjectFileEntity fileEntity, FileStorageStrategy storage, String key) {
+        return singleFlight.execute("ocr", key,
+                () -> remoteOcrClient.extract(() -> storage.openStream(fileEntity), fileEntity.getFileName()));
+    }
+
+    private void notifyFileIndexed(Long fileId, Long versionId, boolean success, String errorMsg) {
+        String status = success ? "INDEXED" : "FAILED";
+        FileStatusMessage payload = new FileStatusMessage(fileId, versionId, status, errorMsg);
+//        socketNotifierService.toFileVersion(versionId, "FILE_STATUS", payload);
+        socketNotifierService.toAllFiles("FILE_STATUS", payload);
     }
 
     private String sanitizeText(String text) {
@@ -211,131 +527,190 @@ public class FullTextSearchService {
         }
     }
 
-    private String extensionOf(String fileName) {
-        if (fileName == null) {
-            return "";
-        }
-        int dot = fileName.lastIndexOf('.');
-        if (dot < 0 || dot == fileName.length() - 1) {
-            return "";
-        }
-        return fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    /**
+     * Версии, в тексте файлов которых найден запрос (фильтр представлений, {@code GET /api/search}).
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findMatchingVersionIds(String queryText) {
+        return findMatchingVersionIds(queryText, SearchScope.CONTENT);
     }
 
-    @Async
-    @Transactional
-    public void reindexAll() {
-        List<ObjectFileEntity> files = fileRepository.findAll();
-        files.forEach(this::indexObjectFile);
-    }
+    /**
+     * Версии, в которых найден запрос; имя и свойства учитываются, только если их явно включает {@code scope}.
+     * Повторные запросы обслуживаются из {@link FullTextQueryCache}, пока в поисковый индекс ничего не записано.
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findMatchingVersionIds(String queryText, SearchScope scope) {
+        if (queryText == null || queryText.isBlank()) return Set.of();
 
-    @Async
-    @Transactional
-    public void reindexOcrCandidates() {
-        List<ObjectFileEntity> candidates = fileRepository.findAllOcrCandidates();
-        if (candidates == null || candidates.isEmpty()) {
-            log.info("OCR reindex requested, but no candidates were found.");
-            return;
-        }
+        try {
+            String tsFunction = tsQueryFunction(queryText);
+            SearchScope effectiveScope = scope != null ? scope : SearchScope.CONTENT;
+            RoaringBitmap versionIds = queryCache.get(tsFunction + "/" + effectiveScope, queryText,
+                    () -> loadMatchingVersionIds(tsFunction, queryText, effectiveScope));
 
-        log.info("Reindexing {} OCR candidates...", candidates.size());
-        Set<Long> processed = new HashSet<>();
-        for (ObjectFileEntity file : candidates) {
-            Long versionId = file.getVersion() != null ? file.getVersion().getId() : null;
-            if (versionId == null) {
-                log.debug("Skipping file {} without version during OCR reindex", file.getId());
-                continue;
-            }
-            if (processed.add(versionId)) {
-                indexObjectFile(file);
-            }
+            Set<Long> ids = new HashSet<>(versionIds.getCardinality() * 2);
+            versionIds.forEach((int id) -> ids.add((long) id));
+
+            log.debug("FTS [{}] '{}' scope={} -> {} results", tsFunction, queryText, effectiveScope, ids.size());
+            return ids;
+
+        } catch (Exception e) {
+            log.error("Ошибка FTS-запроса для '{}': {}", queryText, e.getMessage());
+            return Set.of();
         }
-        log.info("OCR-focused reindex finished ({} versions processed)", processed.size());
     }
 
-    @Async
-    @Transactional
-    public void indexMissing() {
-        List<ObjectFileEntity> files = fileRepository.findAllWithoutIndexedText();
-        if (files == null || files.isEmpty()) {
-            log.info("No missing search_text_cache entries detected.");
-            return;
-        }
+    private RoaringBitmap loadMatchingVersionIds(String tsFunction, String queryText, SearchScope scope) {
+        Query q = em.createNativeQuery(MATCHING_VERSIONS.formatted(tsFunction));
+        q.setParameter("query", queryText);
+        q.setParameter("includeContent", scope != SearchScope.METADATA);
+        q.setParameter("includeMetadata", scope != SearchScope.CONTENT);
 
-        log.info("Indexing {} versions that have no cached text...", files.size());
-        Set<Long> processed = new HashSet<>();
-        for (ObjectFileEntity file : files) {
-            Long versionId = file.getVersion() != null ? file.getVersion().getId() : null;
-            if (versionId == null) {
-                continue;
-            }
-            if (processed.add(versionId)) {
-                indexObjectFile(file);
-            }
+        @SuppressWarnings("unchecked")
+        var results = q.getResultList();
+
+        // version_id — INT (SERIAL), помещается в 32-битный bitmap
+        RoaringBitmap ids = new RoaringBitmap();
+        for (Object r : results) {
+            if (r instanceof Number n) ids.add(n.intValue());
         }
-        log.info("Indexed {} previously missing versions", processed.size());
+        return ids;
     }
 
+    /**
+     * Термины из {@code terms}, которые встречаются в файлах или свойствах, доступных {@code userId}
+     * на чтение; порядок сохраняется.
+     */
     @Transactional(readOnly = true)
-    public List<Long> search(String query) {
-        return cacheRepository.searchByText(query);
+    public List<String> findReadableTerms(List<String> terms, Long userId) {
+        if (terms.isEmpty()) return List.of();
+
+        @SuppressWarnings("unchecked")
+        List<String> readable = em.createNativeQuery(READABLE_TERMS)
+                .setParameter("terms", terms.toArray(new String[0]))
+                .setParameter("aclUserId", userId)
+                .getResultList();
+        return readable;
     }
 
+    /**
+     * Ранжированный поиск: страница объектов по убыванию ts_rank_cd с фрагментами найденного текста.
+     *
+     * @param userId     пользователь, права чтения которого ограничивают результат
+     * @param scope      где искать: в тексте файлов, в имени и свойствах или везде
+     * @param countTotal посчитать общее число результатов (не больше {@code anubis.search.count-limit})
+     */
     @Transactional(readOnly = true)
-    public Set<Long> findMatchingVersionIds(String queryText) {
-        if (queryText == null || queryText.isBlank()) return Set.of();
-
-        try {
-            String tsFunction = "plainto_tsquery";
-            if (queryText.contains("\"") || queryText.contains("+") || queryText.contains("-")) {
-                tsFunction = "websearch_to_tsquery";
-            }
-
-            String config = "multilang";
+    public SearchResultPageDto searchRanked(String queryText, Long userId, SearchScope scope, Integer limit,
+                                            int offset, boolean countTotal) {
+        int pageSize = Math.min(Math.max(1, limit != null ? limit : searchProperties.getDefaultPageSize()),
+                searchProperties.getMaxPageSize());
+        int from = Math.max(0, offset);
+
+        SearchResultPageDto page = SearchResultPageDto.builder()
+                .query(queryText)
+                .limit(pageSize)
+                .offset(from)
+                .hits(List.of())
+                .build();
+        if (queryText == null || queryText.isBlank()) {
+            return page;
+        }
 
-            String sql = """
-                    SELECT object_version_id
-                    FROM search_text_cache
-                    WHERE extracted_text_vector @@ %s(:config::regconfig, :query)
-                    """.formatted(tsFunction);
+        String tsFunction = tsQueryFunction(queryText);
+        SearchScope effectiveScope = scope != null ? scope : SearchScope.ALL;
+        boolean includeContent = effectiveScope != SearchScope.METADATA;
+        boolean includeMetadata = effectiveScope != SearchScope.CONTENT;
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(RANKED_PAGE.formatted(tsFunction))
+                .setParameter("query", queryText)
+                .setParameter("aclUserId", userId)
+                .setParameter("includeContent", includeContent)
+                .setParameter("includeMetadata", includeMetadata)
+                .setParameter("headline", searchProperties.getHeadlineOptions())
+                .setParameter("limit", pageSize)
+                .setParameter("offset", from)
+                .getResultList();
+
+        page.setHits(rows.stream()
+                .map(row -> SearchHitDto.builder()
+                        .objectId(((Number) row[0]).longValue())
+                        .objectName((String) row[1])
+                        .versionId(((Number) row[2]).longValue())
+                        .fileId(row[3] != null ? ((Number) row[3]).longValue() : null)
+                        .fileName((String) row[4])
+                        .rank(((Number) row[5]).doubleValue())
+                        .snippet((String) row[6])
+                        .build())
+                .toList());
+
+        if (countTotal) {
+            int cap = Math.max(1, searchProperties.getCountLimit());
+            long total = ((Number) em.createNativeQuery(RANKED_COUNT.formatted(tsFunction))
+                    .setParameter("query", queryText)
+                    .setParameter("aclUserId", userId)
+                    .setParameter("includeContent", includeContent)
+                    .setParameter("includeMetadata", includeMetadata)
+                    .setParameter("cap", cap)
+                    .getSingleResult()).longValue();
+            page.setTotal(total);
+            page.setTotalIsLowerBound(total >= cap);
+        }
 
-            Query q = em.createNativeQuery(sql);
-            q.setParameter("config", config);
-            q.setParameter("query", queryText);
+        log.debug("Ranked FTS [{}] '{}' user={} scope={} offset={} -> {} hits",
+                tsFunction, queryText, userId, effectiveScope, from, page.getHits().size());
+        return page;
+    }
 
-            @SuppressWarnings("unchecked")
-            var results = q.getResultList();
+    /**
+     * Фасеты ранжированного поиска: число найденных объектов по типу, классу и элементам
+     * выбранных VALUELIST-свойств (считается по той же версии объекта, что и в {@link #searchRanked}).
+     * Учитываются только версии, которые {@code userId} может читать: иначе счётчики выдали бы,
+     * сколько и каких скрытых документов нашлось.
+     */
+    @Transactional(readOnly = true)
+    public List<FacetDto> searchFacets(String queryText, Long userId, SearchScope scope, List<Long> propertyDefIds,
+                                       Integer limit) {
+        if (queryText == null || queryText.isBlank()) {
+            return List.of();
+        }
+        SearchScope effectiveScope = scope != null ? scope : SearchScope.ALL;
 
-            Set<Long> ids = new HashSet<>();
-            for (Object r : results) {
-                if (r instanceof Number n) ids.add(n.longValue());
-            }
+        @SuppressWarnings("unchecked")
+        List<Number> rows = em.createNativeQuery(RANKED_VERSION_IDS.formatted(tsQueryFunction(queryText)))
+                .setParameter("query", queryText)
+                .setParameter("aclUserId", userId)
+                .setParameter("includeContent", effectiveScope != SearchScope.METADATA)
+                .setParameter("includeMetadata", effectiveScope != SearchScope.CONTENT)
+                .getResultList();
 
-            log.debug("FTS [{}:{}] '{}' '{}' -> {} results", tsFunction, config, queryText, ids.size());
-            return ids;
+        return facetService.countFacets(rows.stream().map(Number::longValue).toList(), propertyDefIds, limit);
+    }
 
-        } catch (Exception e) {
-            log.error("Ошибка FTS-запроса для '{}': {}", queryText, e.getMessage());
-            return Set.of();
+    private static String tsQueryFunction(String queryText) {
+        if (queryText.contains("\"") || queryText.contains("+") || queryText.contains("-")) {
+            return "websearch_to_tsquery";
         }
+        return "plainto_tsquery";
     }
 
-    @Async
     @Transactional
-    public void reindexSingle(Long versionId) {
+    public void reindexSingle(Long versionId, boolean forceOcr) {
         if (versionId == null) {
             log.warn("reindexSingle called with null versionId");
             return;
         }
 
-        var files = fileRepository.findByVersion_Id(versionId);
+        // Файлы, видимые в версии, в том числе унаследованные от предыдущих версий
+        var files = fileService.getFilesByVersion(versionId);
         if (files == null || files.isEmpty()) {
             log.warn("No files found for versionId={}", versionId);
             return;
         }
 
-        log.info("Reindexing version {} ({} files)...", versionId, files.size());
-        files.forEach(this::indexObjectFile);
-        log.info("Completed reindex for version {}", versionId);
+        indexJobQueue.enqueueAll(files.stream().map(ObjectFileDto::getId).toList(), IndexJobPriority.INTERACTIVE, forceOcr);
+        log.info("Reindex of version {} queued ({} files, forceOcr={})", versionId, files.size(), forceOcr);
     }
 }
@@ -0,0 +1,139 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.DocumentPreviewProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.CCITTFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Постраничная конвертация изображений (PSD, TIFF, JPEG, PNG и т.д.) в PDF с ограничением памяти.
+ * <p>
+ * Исходник читается потоком из хранилища: {@link ImageIO} буферизует непозиционируемый поток
+ * во временном файле, а не в массиве. Каждая страница декодируется с субдискретизацией
+ * {@link ImageReadParam} ровно до разрешения превью, сразу кодируется в PDF и освобождается.
+ * Буферы PDFBox ограничены настройкой {@code anubis.preview.image.max-main-memory}, остальное уходит
+ * во временный файл; готовый PDF пишется в переданный поток.
+ * <p>
+ * Чёрно-белые страницы (1 бит на пиксель, типичные сканы TIFF) кодируются без потерь CCITT G4:
+ * JPEG на них и крупнее, и размывает штрихи.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImagePdfConverter {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final DocumentPreviewProperties properties;
+
+    public void convert(InputStream image, String filename, OutputStream pdfOut) throws IOException {
+        DocumentPreviewProperties.Image settings = properties.getImage();
+        MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(settings.getMaxMainMemory().toBytes());
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(image)) {
+            if (input == null) {
+                throw new IOException("Cannot open image stream for " + filename);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("No ImageIO reader for " + filename);
+            }
+
+            ImageReader reader = readers.next();
+            try (PDDocument doc = new PDDocument(memory.streamCache)) {
+                reader.setInput(input, false, true);
+
+                int pageLimit = isMultiPage(reader) ? Math.max(1, settings.getMaxPages()) : 1;
+                int pages = 0;
+                while (pages < pageLimit && hasImage(reader, pages)) {
+                    appendPage(doc, reader, pages, settings.getMaxDimension());
+                    pages++;
+                }
+
+                if (pages == 0) {
+                    throw new IOException("Failed to read image: no decodable pages in " + filename);
+                }
+                log.debug("Converted {} page(s) of {} to PDF", pages, filename);
+
+                doc.save(pdfOut);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void appendPage(PDDocument doc, ImageReader reader, int index, int maxDimension) throws IOException {
+        int width = reader.getWidth(index);
+        int height = reader.getHeight(index);
+        int step = subsamplingStep(width, height, maxDimension);
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (step > 1) {
+            param.setSourceSubsampling(step, step, 0, 0);
+            log.debug("Page {}: {}x{} decoded with subsampling 1/{}", index, width, height, step);
+        }
+
+        BufferedImage image = reader.read(index, param);
+        PDImageXObject pdImage;
+        if (isBilevel(image)) {
+            pdImage = CCITTFactory.createFromImage(doc, image);
+        } else if (image.getColorModel().hasAlpha()) {
+            pdImage = LosslessFactory.createFromImage(doc, image);
+        } else {
+            pdImage = JPEGFactory.createFromImage(doc, image, JPEG_QUALITY);
+        }
+
+        PDPage page = new PDPage(new PDRectangle(image.getWidth(), image.getHeight()));
+        doc.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+            content.drawImage(pdImage, 0, 0, image.getWidth(), image.getHeight());
+        }
+        image.flush();
+    }
+
+    private static boolean isBilevel(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1;
+    }
+
+    private static int subsamplingStep(int width, int height, int maxDimension) {
+        int longest = Math.max(width, height);
+        if (maxDimension <= 0 || longest <= maxDimension) {
+            return 1;
+        }
+        return (longest + maxDimension - 1) / maxDimension;
+    }
+
+    private static boolean isMultiPage(ImageReader reader) throws IOException {
+        String format = reader.getFormatName();
+        return format != null && format.toLowerCase(Locale.ROOT).startsWith("tif");
+    }
+
+    private static boolean hasImage(ImageReader reader, int index) throws IOException {
+        try {
+            reader.getWidth(index);
+            return true;
+        } catch (IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+}
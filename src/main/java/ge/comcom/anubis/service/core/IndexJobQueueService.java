@@ -0,0 +1,346 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.IndexQueueProperties;
+import ge.comcom.anubis.enums.IndexJobPriority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Долговременная очередь индексации на таблице index_job.
+ * <p>
+ * Задачи ставятся в той же транзакции, что и сохранение файла, поэтому не теряются при перезапуске.
+ * Воркеры забирают их через {@code SELECT ... FOR UPDATE SKIP LOCKED}: сначала с большим приоритетом,
+ * RUNNING-задачи с истёкшей арендой забираются повторно. Пока задача выполняется, воркер продлевает
+ * аренду ({@link #extendLease}). Номер попытки служит меткой захвата: продление, завершение и неудача
+ * применяются, только если задачу с тех пор никто не забрал заново. Неудачная попытка откладывается
+ * с экспоненциальной задержкой; после {@code max-attempts} задача остаётся в статусе DEAD.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexJobQueueService {
+
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    /** Удаление задачи, которой всё ещё владеет этот захват. */
+    private static final String OWNED_DELETE =
+            "DELETE FROM index_job WHERE job_id = :jobId AND status = 'RUNNING' AND attempts = :attempt";
+
+    private final IndexQueueProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final AtomicLong pendingDepth = new AtomicLong();
+    private final AtomicLong runningDepth = new AtomicLong();
+    private final AtomicLong deadDepth = new AtomicLong();
+
+    /** Монитор, на котором простаивающие воркеры ждут новых задач. */
+    private final Object signal = new Object();
+
+    @PostConstruct
+    void registerMetrics() {
+        depthGauge("pending", pendingDepth);
+        depthGauge("running", runningDepth);
+        depthGauge("dead", deadDepth);
+    }
+
+    /**
+     * Ставит файл в очередь. Если для файла уже есть ожидающая задача, повышает её приоритет.
+     */
+    @Transactional
+    public void enqueue(Long fileId, IndexJobPriority priority) {
+        if (fileId == null) {
+            return;
+        }
+        enqueueAll(List.of(fileId), priority, false);
+    }
+
+    /**
+     * @param forceOcr выполнить OCR заново, даже если текст этого бинаря уже сохранён в binary_text
+     */
+    @Transactional
+    public int enqueueAll(Collection<Long> fileIds, IndexJobPriority priority, boolean forceOcr) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            return 0;
+        }
+        int inserted = em.createNativeQuery("""
+                        INSERT INTO index_job (file_id, priority, force_ocr)
+                        SELECT DISTINCT unnest(:ids), :priority, :forceOcr
+                        ON CONFLICT (file_id) WHERE status = 'PENDING'
+                        DO UPDATE SET priority = GREATEST(index_job.priority, EXCLUDED.priority),
+                                      force_ocr = index_job.force_ocr OR EXCLUDED.force_ocr
+                        """)
+                .setParameter("ids", fileIds.toArray(new Long[0]))
+                .setParameter("priority", priority.value())
+                .setParameter("forceOcr", forceOcr)
+                .executeUpdate();
+
+        wakeUpWorkersAfterCommit();
+        log.debug("Enqueued {} indexing job(s) with priority {}", inserted, priority);
+        return inserted;
+    }
+
+    /**
+     * Забирает следующую задачу и выдаёт аренду на {@code lease}. Пусто, если готовых задач нет.
+     */
+    @Transactional
+    public Optional<IndexJob> claim() {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery("""
+                        SELECT job_id, file_id, attempts, (EXTRACT(EPOCH FROM created_at) * 1000)::bigint, force_ocr
+                        FROM index_job
+                        WHERE (status = 'PENDING' AND run_after <= now())
+                           OR (status = 'RUNNING' AND locked_until < now())
+                        ORDER BY priority DESC, run_after, job_id
+                        LIMIT 1
+                        FOR UPDATE SKIP LOCKED
+                        """)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object[] row = rows.get(0);
+        long jobId = ((Number) row[0]).longValue();
+        em.createNativeQuery("""
+                        UPDATE index_job
+                        SET status = 'RUNNING',
+                            attempts = attempts + 1,
+                            locked_until = now() + make_interval(secs => :lease)
+                        WHERE job_id = :jobId
+                        """)
+                .setParameter("lease", properties.getLease().toSeconds())
+                .setParameter("jobId", jobId)
+                .executeUpdate();
+
+        return Optional.of(new IndexJob(
+                jobId,
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).intValue() + 1,
+                ((Number) row[3]).longValue(),
+                Boolean.TRUE.equals(row[4])
+        ));
+    }
+
+    /**
+     * Продлевает аренду выполняющейся задачи.
+     *
+     * @return {@code false}, если задача уже не принадлежит этому захвату (аренда истекла и её забрали)
+     */
+    @Transactional
+    public boolean extendLease(IndexJob job) {
+        return em.createNativeQuery("""
+                        UPDATE index_job
+                        SET locked_until = now() + make_interval(secs => :lease)
+                        WHERE job_id = :jobId AND status = 'RUNNING' AND attempts = :attempt
+                        """)
+                .setParameter("lease", properties.getLease().toSeconds())
+                .setParameter("jobId", job.jobId())
+                .setParameter("attempt", job.attempt())
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Успешное выполнение: задача удаляется из очереди, если её не забрал другой воркер.
+     */
+    @Transactional
+    public void complete(IndexJob job, long durationNanos) {
+        int deleted = em.createNativeQuery(OWNED_DELETE)
+                .setParameter("jobId", job.jobId())
+                .setParameter("attempt", job.attempt())
+                .executeUpdate();
+        if (deleted == 0) {
+            log.warn("Indexing job {} for file {} was claimed again while attempt {} ran; leaving it to the new owner",
+                    job.jobId(), job.fileId(), job.attempt());
+        }
+
+        recordDuration(durationNanos, "success");
+        meterRegistry.timer("anubis.index.job.latency")
+                .record(Math.max(0, System.currentTimeMillis() - job.createdAtMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Неудачная попытка: повтор с задержкой либо перевод в DEAD.
+     *
+     * @return {@code true}, если задача исчерпала попытки и перемещена в DEAD
+     */
+    @Transactional
+    public boolean fail(IndexJob job, long durationNanos, String error) {
+        String message = truncate(error);
+
+        if (job.attempt() >= properties.getMaxAttempts()) {
+            int updated = em.createNativeQuery("""
+                            UPDATE index_job
+                            SET status = 'DEAD', locked_until = NULL, last_error = :error
+                            WHERE job_id = :jobId AND status = 'RUNNING' AND attempts = :attempt
+                            """)
+                    .setParameter("error", message)
+                    .setParameter("jobId", job.jobId())
+                    .setParameter("attempt", job.attempt())
+                    .executeUpdate();
+            if (updated == 0) {
+                logLostClaim(job, message);
+                return false;
+            }
+            recordDuration(durationNanos, "dead");
+            log.error("Indexing job {} for file {} moved to dead-letter after {} attempts: {}",
+                    job.jobId(), job.fileId(), job.attempt(), message);
+            return true;
+        }
+
+        Duration delay = backoff(job.attempt());
+        // Если за время выполнения файл поставили в очередь заново, ожидающая задача уже покрывает повтор
+        int rescheduled = em.createNativeQuery("""
+                        UPDATE index_job j
+                        SET status = 'PENDING',
+                            locked_until = NULL,
+                            last_error = :error,
+                            run_after = now() + make_interval(secs => :delay)
+                        WHERE j.job_id = :jobId AND j.status = 'RUNNING' AND j.attempts = :attempt
+                          AND NOT EXISTS (
+                              SELECT 1 FROM index_job p
+                              WHERE p.file_id = j.file_id AND p.status = 'PENDING'
+                          )
+                        """)
+                .setParameter("error", message)
+                .setParameter("delay", delay.toMillis() / 1000.0)
+                .setParameter("jobId", job.jobId())
+                .setParameter("attempt", job.attempt())
+                .executeUpdate();
+        if (rescheduled == 0) {
+            int deleted = em.createNativeQuery(OWNED_DELETE)
+                    .setParameter("jobId", job.jobId())
+                    .setParameter("attempt", job.attempt())
+                    .executeUpdate();
+            if (deleted == 0) {
+                logLostClaim(job, message);
+                return false;
+            }
+        }
+
+        recordDuration(durationNanos, "retry");
+        log.warn("Indexing job {} for file {} failed (attempt {}/{}), retry in {}s: {}",
+                job.jobId(), job.fileId(), job.attempt(), properties.getMaxAttempts(), delay.toSeconds(), message);
+        return false;
+    }
+
+    /**
+     * Обновляет значения метрик глубины очереди.
+     */
+    @Transactional(readOnly = true)
+    public void refreshDepth() {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery("""
+                        SELECT status, COUNT(*)
+                        FROM index_job
+                        GROUP BY status
+                        """)
+                .getResultList();
+
+        long pending = 0, running = 0, dead = 0;
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            switch (String.valueOf(row[0])) {
+                case "PENDING" -> pending = count;
+                case "RUNNING" -> running = count;
+                case "DEAD" -> dead = count;
+                default -> { }
+            }
+        }
+        pendingDepth.set(pending);
+        runningDepth.set(running);
+        deadDepth.set(dead);
+    }
+
+    /**
+     * Ожидание новых задач: возвращается по сигналу о постановке или по таймауту.
+     */
+    public void awaitWork(Duration timeout) throws InterruptedException {
+        synchronized (signal) {
+            signal.wait(Math.max(1L, timeout.toMillis()));
+        }
+    }
+
+    public void wakeUpWorkers() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void wakeUpWorkersAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUpWorkers();
+                }
+            });
+        } else {
+            wakeUpWorkers();
+        }
+    }
+
+    private void logLostClaim(IndexJob job, String message) {
+        log.warn("Indexing job {} for file {} was claimed again while attempt {} ran; its failure is dropped: {}",
+                job.jobId(), job.fileId(), job.attempt(), message);
+    }
+
+    private Duration backoff(int attempt) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long exponential = initial << Math.min(attempt - 1, 20);
+        long capped = Math.min(Math.max(exponential, initial), max);
+        // ±20% разброса, чтобы повторы после сбоя шлюза не приходили одной волной
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Duration.ofMillis((long) (capped * jitter));
+    }
+
+    private void recordDuration(long durationNanos, String outcome) {
+        Timer.builder("anubis.index.job.duration")
+                .description("Indexing job processing time")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void depthGauge(String status, AtomicLong value) {
+        Gauge.builder("anubis.index.queue.depth", value, AtomicLong::get)
+                .description("Indexing jobs by status")
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.isBlank()) {
+            return "unknown error";
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    /**
+     * Забранная воркером задача.
+     *
+     * @param attempt номер текущей попытки (с единицы)
+     */
+    public record IndexJob(long jobId, long fileId, int attempt, long createdAtMillis, boolean forceOcr) { }
+}
@@ -0,0 +1,185 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.IndexQueueProperties;
+import ge.comcom.anubis.config.OcrProperties;
+import ge.comcom.anubis.service.core.IndexJobQueueService.IndexJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пул воркеров очереди индексации. Каждый воркер в цикле забирает задачу из index_job
+ * и индексирует файл; параллелизм ограничен {@code anubis.index-queue.workers}.
+ * <p>
+ * Пока задача выполняется, её аренда продлевается каждую треть {@code lease}, поэтому долгий OCR
+ * не забирается повторно другим воркером; аренда истекает, только если узел перестал отвечать.
+ * <p>
+ * При остановке приложения новые задачи не забираются, текущие дорабатываются
+ * (не дольше {@code shutdown-timeout}); необработанные задачи остаются в таблице.
+ */
+@Component
+@Slf4j
+public class IndexJobWorker implements SmartLifecycle {
+
+    private final IndexJobQueueService queue;
+    private final FullTextSearchService fullTextSearchService;
+    private final IndexQueueProperties properties;
+    private final OcrProperties ocrProperties;
+    private final Executor executor;
+
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-job-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+    private volatile CountDownLatch finished = new CountDownLatch(0);
+    private volatile long depthRefreshedAt;
+
+    public IndexJobWorker(IndexJobQueueService queue,
+                          FullTextSearchService fullTextSearchService,
+                          IndexQueueProperties properties,
+                          OcrProperties ocrProperties,
+                          @Qualifier("fullTextSearchExecutor") Executor executor) {
+        this.queue = queue;
+        this.fullTextSearchService = fullTextSearchService;
+        this.properties = properties;
+        this.ocrProperties = ocrProperties;
+        this.executor = executor;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Index queue workers disabled in configuration");
+            return;
+        }
+        int workers = Math.max(1, properties.getWorkers());
+        running = true;
+        finished = new CountDownLatch(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::runLoop);
+        }
+        log.info("Started {} index queue worker(s)", workers);
+
+        // Воркер ждёт ответа OCR синхронно: при меньшем числе воркеров лимит шлюза не достигается
+        int ocrMaxLimit = ocrProperties.getConcurrency().getMaxLimit();
+        if (workers < ocrMaxLimit) {
+            log.warn("Only {} index queue worker(s) for OCR concurrency max-limit {}; "
+                    + "raise anubis.index-queue.workers to use the full limit", workers, ocrMaxLimit);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        queue.wakeUpWorkers();
+        try {
+            if (!finished.await(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Index queue workers did not finish within {}; unfinished jobs will be retried after lease expiry",
+                        properties.getShutdownTimeout());
+            } else {
+                log.info("Index queue workers drained");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runLoop() {
+        try {
+            while (running) {
+                try {
+                    refreshDepthIfStale();
+                    Optional<IndexJob> job = queue.claim();
+                    if (job.isPresent()) {
+                        process(job.get());
+                    } else {
+                        queue.awaitWork(properties.getPollInterval());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable e) {
+                    // Воркер не должен исчезать молча: даже после Error (например, OOM) цикл продолжается
+                    log.error("Index queue worker error: {}", e.getMessage(), e);
+                    sleepQuietly();
+                }
+            }
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private void process(IndexJob job) {
+        long started = System.nanoTime();
+        ScheduledFuture<?> lease = scheduleLeaseRenewal(job);
+        try {
+            fullTextSearchService.indexFile(job.fileId(), job.forceOcr());
+            lease.cancel(false);
+            queue.complete(job, System.nanoTime() - started);
+        } catch (Throwable e) {
+            // Error (например, OOM при рендеринге огромной страницы) тоже завершает попытку,
+            // иначе задача висела бы в RUNNING до истечения аренды
+            lease.cancel(false);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (e instanceof Error) {
+                log.error("Indexing job {} for file {} failed with {}", job.jobId(), job.fileId(), e.toString(), e);
+            }
+            boolean dead = queue.fail(job, System.nanoTime() - started, message);
+            if (dead) {
+                fullTextSearchService.notifyIndexingFailed(job.fileId(), message);
+            }
+        } finally {
+            lease.cancel(false);
+        }
+    }
+
+    private ScheduledFuture<?> scheduleLeaseRenewal(IndexJob job) {
+        long interval = Math.max(1_000L, properties.getLease().toMillis() / 3);
+        return heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (!queue.extendLease(job)) {
+                    log.warn("Lease of indexing job {} for file {} was lost; another worker may run it",
+                            job.jobId(), job.fileId());
+                }
+            } catch (Exception e) {
+                log.warn("Failed to extend lease of indexing job {}: {}", job.jobId(), e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Метрики глубины очереди обновляются не чаще одного раза за poll-interval. */
+    private void refreshDepthIfStale() {
+        long now = System.currentTimeMillis();
+        if (now - depthRefreshedAt >= properties.getPollInterval().toMillis()) {
+            depthRefreshedAt = now;
+            queue.refreshDepth();
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(properties.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
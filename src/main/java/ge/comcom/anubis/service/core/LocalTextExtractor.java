@@ -0,0 +1,133 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.TextExtractionProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.tika.exception.EncryptedDocumentException;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.stereotype.Component;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Извлечение текста внутри приложения для документов, которым не нужен OCR.
+ * <p>
+ * Офисные форматы, HTML, текст и т.п. разбирает Apache Tika; PDF — PDFBox, и в OCR-шлюз отправляются
+ * только страницы без текстового слоя. Пустой результат означает, что документ нужно целиком отправить
+ * в OCR-шлюз: изображения, зашифрованные и неподдерживаемые форматы.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LocalTextExtractor {
+
+    private static final MediaType PDF = MediaType.application("pdf");
+
+    private final TextExtractionProperties properties;
+    private final PdfPageTextExtractor pdfPageTextExtractor;
+
+    private final AutoDetectParser parser = new AutoDetectParser();
+
+    /**
+     * Документы, которые не удалось разобрать (повреждённые, неожиданный формат), тоже отправляются в шлюз.
+     *
+     * @return текст документа (возможно, пустой) или {@code Optional.empty()}, если нужен OCR-шлюз
+     * @throws IOException содержимое не удалось прочитать из хранилища
+     */
+    public Optional<String> extract(Callable<InputStream> content, String fileName) throws IOException {
+        if (!properties.isLocalEnabled()) {
+            return Optional.empty();
+        }
+
+        Metadata metadata = new Metadata();
+        if (fileName != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        }
+
+        try (TikaInputStream stream = TikaInputStream.get(open(content))) {
+            MediaType type = parser.getDetector().detect(stream, metadata).getBaseType();
+
+            if ("image".equals(type.getType())) {
+                log.debug("{} is an image ({}), OCR required", fileName, type);
+                return Optional.empty();
+            }
+            if (PDF.equals(type)) {
+                return extractPdf(stream, fileName);
+            }
+
+            ParseContext context = new ParseContext();
+            context.set(Parser.class, parser);
+            if (!parser.getSupportedTypes(context).contains(type)) {
+                log.debug("No in-process parser for {} ({}), sending to OCR gateway", fileName, type);
+                return Optional.empty();
+            }
+            return Optional.of(parse(stream, metadata, context, fileName, type));
+        } catch (TikaException | SAXException e) {
+            log.warn("In-process extraction of {} failed, sending to OCR gateway: {}", fileName, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static InputStream open(Callable<InputStream> content) throws IOException {
+        try {
+            return content.call();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private String parse(TikaInputStream stream, Metadata metadata, ParseContext context,
+                         String fileName, MediaType type) throws IOException, TikaException, SAXException {
+        BodyContentHandler handler = new BodyContentHandler(properties.getMaxTextLength());
+        try {
+            parser.parse(stream, handler, metadata, context);
+        } catch (EncryptedDocumentException e) {
+            log.warn("{} is encrypted, text not extracted", fileName);
+            return "";
+        } catch (SAXException e) {
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                throw e;
+            }
+            log.warn("Text of {} truncated to {} chars", fileName, properties.getMaxTextLength());
+        }
+        log.debug("Extracted {} chars from {} ({}) in-process", handler.toString().length(), fileName, type);
+        return handler.toString();
+    }
+
+    /**
+     * PDF разбирается постранично: текстовый слой читается напрямую, сканированные страницы распознаются
+     * по отдельности ({@link PdfPageTextExtractor}). Зашифрованный PDF целиком уходит в OCR-шлюз.
+     */
+    private Optional<String> extractPdf(InputStream stream, String fileName) throws IOException {
+        try (PDDocument document = Loader.loadPDF(new RandomAccessReadBuffer(stream))) {
+            String text = pdfPageTextExtractor.extract(document, fileName);
+            if (text.length() > properties.getMaxTextLength()) {
+                log.warn("Text of {} truncated to {} chars", fileName, properties.getMaxTextLength());
+                text = text.substring(0, properties.getMaxTextLength());
+            }
+            return Optional.of(text);
+        } catch (InvalidPasswordException e) {
+            log.debug("{} is password protected, sending to OCR gateway", fileName);
+            return Optional.empty();
+        }
+    }
+}
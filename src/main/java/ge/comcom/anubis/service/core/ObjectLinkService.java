@@ -7,6 +7,7 @@ import ge.comcom.anubis.enums.LinkDirection;
 import ge.comcom.anubis.repository.core.LinkRoleRepository;
 import ge.comcom.anubis.repository.core.ObjectLinkRepository;
 import ge.comcom.anubis.repository.core.ObjectRepository;
+import ge.comcom.anubis.service.view.ViewResultCache;
 import ge.comcom.anubis.util.UserContext;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +28,7 @@ public class ObjectLinkService {
     private final ObjectLinkRepository linkRepository;
     private final ObjectRepository objectRepository;
     private final LinkRoleRepository linkRoleRepository;
+    private final ViewResultCache viewResultCache;
 
     /**
      * Creates a new link between two objects.
@@ -97,6 +99,7 @@ public class ObjectLinkService {
             }
         }
 
+        viewResultCache.linksChanged();
         log.info("Created {} link [{}] {} -> {}", direction, role.getName(), srcId, dstId);
         return link;
     }
@@ -118,6 +121,7 @@ public class ObjectLinkService {
         if (deleted == 0) {
             log.info("No links found to remove: {} <-> {} [{}]", srcId, dstId, roleName);
         } else {
+            viewResultCache.linksChanged();
             log.info("Removed {} link(s) [{}] between {} and {}", deleted, roleName, srcId, dstId);
         }
     }
@@ -13,6 +13,7 @@ import ge.comcom.anubis.repository.core.PropertyValueMultiRepository;
 import ge.comcom.anubis.repository.meta.PropertyDefRepository;
 import ge.comcom.anubis.repository.meta.PropertyValueRepository;
 import ge.comcom.anubis.repository.meta.ValueListItemRepository;
+import ge.comcom.anubis.service.view.ViewResultCache;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -46,6 +47,8 @@ public class ObjectPropertyValueService {
     private final ObjectRepository objectRepository;
     private final ObjectVersionService versionService;
     private final ObjectVersionAuditService auditService;
+    private final SearchDocumentService searchDocumentService;
+    private final ViewResultCache viewResultCache;
 
     @Transactional
     public void savePropertyValues(Long versionId, List<PropertyValueDto> properties) {
@@ -68,6 +71,10 @@ public class ObjectPropertyValueService {
         Set<Long> propertyIdsToKeep = new HashSet<>(preparedStates.keySet());
         removeUnmentionedProperties(newVersion, propertyIdsToKeep);
         persistPreparedStates(newVersion.getId(), preparedStates.values());
+        searchDocumentService.versionChanged(newVersion.getId());
+        Set<Long> changedDefs = new HashSet<>(existingSnapshots.keySet());
+        changedDefs.addAll(preparedStates.keySet());
+        viewResultCache.versionsChanged(changedDefs);
         logPropertyChanges(newVersion, changes);
     }
 
@@ -120,6 +127,7 @@ public class ObjectPropertyValueService {
         }
 
         propertyValueRepository.deleteAll(props);
+        viewResultCache.versionsChanged(props.stream().map(pv -> pv.getPropertyDef().getId()).toList());
     }
 
     private Map<Long, ExistingPropertySnapshot> loadExistingSnapshots(Long versionId) {
@@ -11,6 +11,7 @@ import ge.comcom.anubis.repository.core.FileBinaryRepository;
 import ge.comcom.anubis.repository.meta.PropertyDefRepository;
 import ge.comcom.anubis.repository.meta.PropertyValueRepository;
 import ge.comcom.anubis.repository.meta.ValueListItemRepository;
+import ge.comcom.anubis.service.view.ViewResultCache;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +25,7 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import ge.comcom.anubis.enums.PropertyDataType;
@@ -48,6 +50,8 @@ public class ObjectService {
     private final ObjectMapper objectMapper;
     private final ObjectVersionService objectVersionService;
     private final ObjectVersionAuditService auditService;
+    private final SearchDocumentService searchDocumentService;
+    private final ViewResultCache viewResultCache;
 
     private final FileBinaryRepository fileBinaryRepository;
 
@@ -108,7 +112,16 @@ public class ObjectService {
         if (saved.getVersions() != null) {
             saved.getVersions().add(newVersion);
         }
-
+        ObjectStateSnapshot afterUpdate = ObjectStateSnapshot.from(saved);
+        if (!Objects.equals(beforeUpdate.typeId(), afterUpdate.typeId())
+                || !Objects.equals(beforeUpdate.classId(), afterUpdate.classId())) {
+            // Тип и класс входят в цепочку наследования ACL всех версий объекта
+            viewResultCache.invalidateAllAfterCommit();
+        }
+        if (!Objects.equals(beforeUpdate.name(), afterUpdate.name())) {
+            // Имя сопоставляется с запросом во время поиска, по "object"
+            searchDocumentService.objectRenamed();
+        }
         logObjectFieldChanges(beforeUpdate, saved, newVersion);
 
         return saved;
@@ -139,6 +152,7 @@ public class ObjectService {
             throw new EntityNotFoundException("Object not found: " + id);
         }
         objectRepository.deleteById(id);
+        viewResultCache.invalidateAllAfterCommit();
         log.warn("Hard-deleted object ID {}", id);
         // 🧹 Очистка осиротевших бинарных файлов
         if (fileBinaryRepository != null) {
@@ -415,11 +429,11 @@ public class ObjectService {
     }
 
     private void initializeForRead(ObjectEntity entity) {
-        Hibernate.initialize(entity.getVersions());
-        List<ObjectVersionEntity> versions = entity.getVersions();
-        if (versions != null && !versions.isEmpty()) {
-            ObjectVersionEntity firstVersion = versions.get(0);
-            if (firstVersion != null && firstVersion.getCreatedBy() != null) {
+        // Для DTO нужны только время и автор первой версии — вся история не загружается
+        ObjectVersionEntity firstVersion = entity.getFirstVersion();
+        if (firstVersion != null) {
+            Hibernate.initialize(firstVersion);
+            if (firstVersion.getCreatedBy() != null) {
                 Hibernate.initialize(firstVersion.getCreatedBy());
             }
         }
@@ -472,6 +486,9 @@ public class ObjectService {
         List<PropertyValue> dups = propertyValueRepository
                 .findAllByObjectVersion_Object_IdAndPropertyDef_Id(object.getId(), def.getId());
 
+        // Значения удаляются или переносятся из прежних версий: их документы тоже пересобираются
+        dups.forEach(dup -> searchDocumentService.versionChanged(dup.getObjectVersion().getId()));
+
         PropertyValue pv = dups.isEmpty() ? new PropertyValue() : dups.get(0);
         if (dups.size() > 1) {
             for (int i = 1; i < dups.size(); i++) propertyValueRepository.delete(dups.get(i));
@@ -511,6 +528,8 @@ public class ObjectService {
         }
 
         propertyValueRepository.save(pv);
+        searchDocumentService.versionChanged(pv.getObjectVersion().getId());
+        viewResultCache.versionsChanged(List.of(def.getId()));
         log.debug("💾 Установлено значение '{}' для '{}'", value, def.getName());
     }
 
@@ -549,6 +568,8 @@ public class ObjectService {
                 propertyValueMultiRepository.save(multi);
             }
         }
+        searchDocumentService.versionChanged(version.getId());
+        viewResultCache.versionsChanged(List.of(def.getId()));
         log.debug("💾 Мульти-значение {} установлено для '{}'", valueIds, def.getName());
     }
 
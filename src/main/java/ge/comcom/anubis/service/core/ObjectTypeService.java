@@ -4,12 +4,14 @@ import ge.comcom.anubis.entity.core.ObjectType;
 import ge.comcom.anubis.entity.core.VaultEntity;
 import ge.comcom.anubis.repository.core.ObjectTypeRepository;
 import ge.comcom.anubis.repository.core.VaultRepository;
+import ge.comcom.anubis.service.view.ViewResultCache;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -17,6 +19,7 @@ public class ObjectTypeService {
 
     private final ObjectTypeRepository objectTypeRepository;
     private final VaultRepository vaultRepository;
+    private final ViewResultCache viewResultCache;
 
     @Transactional(readOnly = true)
     public List<ObjectType> findAll() {
@@ -50,11 +53,16 @@ public class ObjectTypeService {
 
         existing.setName(updated.getName());
 
+        Long previousAclId = existing.getAcl() != null ? existing.getAcl().getId() : null;
         if (updated.getAcl() != null && updated.getAcl().getId() != null) {
             existing.setAcl(updated.getAcl());
         } else {
             existing.setAcl(null);
         }
+        if (!Objects.equals(previousAclId, existing.getAcl() != null ? existing.getAcl().getId() : null)) {
+            // ACL типа наследуют все объекты без собственного ACL
+            viewResultCache.invalidateAllAfterCommit();
+        }
 
         existing.setNameI18n(updated.getNameI18n());
 
@@ -16,6 +16,7 @@ import ge.comcom.anubis.repository.meta.ClassPropertyRepository;
 import ge.comcom.anubis.repository.meta.PropertyValueRepository;
 import ge.comcom.anubis.repository.core.PropertyValueMultiRepository;
 import ge.comcom.anubis.repository.security.UserRepository;
+import ge.comcom.anubis.service.view.ViewResultCache;
 import ge.comcom.anubis.util.UserContext;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -28,9 +29,11 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
@@ -61,9 +64,14 @@ public class ObjectVersionService {
     private final PropertyValueMultiRepository propertyValueMultiRepository;
     private final ObjectVersionMapper versionMapper;
     private final UserRepository userRepository;
+    private final SearchDocumentService searchDocumentService;
+    private final ViewResultCache viewResultCache;
 
     /**
      * Saves or updates an object version, including full metadata validation.
+     * <p>
+     * A new version is inserted under the same object row lock as {@link #createNewVersion} and refreshes
+     * the object's current/first version pointers.
      *
      * @param entity ObjectVersionEntity to be saved
      * @return saved ObjectVersionEntity
@@ -73,13 +81,30 @@ public class ObjectVersionService {
             entity.setCreatedAt(Instant.now());
         }
 
+        Long objectId = entity.getObject() != null ? entity.getObject().getId() : null;
+        boolean inserting = entity.getId() == null && objectId != null;
+        Set<Long> changedDefs = new HashSet<>();
+        if (inserting) {
+            ObjectEntity object = objectRepository.findByIdForUpdate(objectId)
+                    .orElseThrow(() -> new EntityNotFoundException("Object not found: " + objectId));
+            entity.setObject(object);
+            // The new version may replace the current one: views matching the old values lose the object
+            versionRepository.findTopByObject_IdOrderByVersionNumberDesc(objectId)
+                    .ifPresent(current -> propertyValueRepository.findAllByObjectVersionId(current.getId())
+                            .forEach(pv -> changedDefs.add(pv.getPropertyDef().getId())));
+        }
+
         validateMetadata(entity);
 
-        log.debug("Saving version for objectId={} versionNumber={}",
-                entity.getObject() != null ? entity.getObject().getId() : "null",
-                entity.getVersionNumber());
+        log.debug("Saving version for objectId={} versionNumber={}", objectId, entity.getVersionNumber());
 
         ObjectVersionEntity saved = versionRepository.save(entity);
+        if (inserting) {
+            objectRepository.refreshVersionPointers(objectId);
+        }
+        resolvePropertyValues(saved).forEach(pv -> changedDefs.add(pv.getPropertyDef().getId()));
+        searchDocumentService.versionChanged(saved.getId());
+        viewResultCache.versionsChanged(changedDefs);
         Long actorId = saved.getCreatedBy() != null ? saved.getCreatedBy().getId() : null;
         String actorName = saved.getCreatedBy() != null ? saved.getCreatedBy().getUsername() : "unknown";
         auditService.logAction(saved, VersionChangeType.VERSION_SAVED, actorId,
@@ -247,7 +272,8 @@ public class ObjectVersionService {
     }
 
     public ObjectVersionEntity createNewVersion(Long objectId, String comment, Instant createdAt, Instant modifiedAt) {
-        ObjectEntity object = objectRepository.findById(objectId)
+        // Row lock: concurrent version creation for the same object gets distinct numbers and a consistent pointer
+        ObjectEntity object = objectRepository.findByIdForUpdate(objectId)
                 .orElseThrow(() -> new EntityNotFoundException("Object not found: " + objectId));
 
         Integer lastVersion = versionRepository.findLastVersionNumber(objectId);
@@ -274,7 +300,15 @@ public class ObjectVersionService {
         author.ifPresent(entity::setCreatedBy);
 
         ObjectVersionEntity saved = versionRepository.save(entity);
-        copyPropertyValues(previousVersion, saved);
+        Set<Long> copiedDefs = copyPropertyValues(previousVersion, saved);
+        objectRepository.refreshVersionPointers(objectId);
+        object.setCurrentVersion(saved);
+        if (object.getFirstVersion() == null) {
+            object.setFirstVersion(saved);
+        }
+        searchDocumentService.versionChanged(saved.getId());
+        // The new version replaces the previous one as current and carries the same property values
+        viewResultCache.versionsChanged(copiedDefs);
         Long actorId = author.map(User::getId).orElse(null);
         auditService.logAction(saved, VersionChangeType.VERSION_CREATED, actorId,
                 "Created new version " + newVersion);
@@ -388,14 +422,20 @@ public class ObjectVersionService {
         return Optional.empty();
     }
 
-    private void copyPropertyValues(ObjectVersionEntity source, ObjectVersionEntity target) {
+    /**
+     * Copies property values of {@code source} into {@code target}.
+     *
+     * @return property definitions that have values in the copied version
+     */
+    private Set<Long> copyPropertyValues(ObjectVersionEntity source, ObjectVersionEntity target) {
+        Set<Long> copiedDefs = new HashSet<>();
         if (source == null || target == null) {
-            return;
+            return copiedDefs;
         }
 
         List<PropertyValue> sourceValues = propertyValueRepository.findAllByObjectVersionId(source.getId());
         if (sourceValues.isEmpty()) {
-            return;
+            return copiedDefs;
         }
 
         if (target.getPropertyValues() == null) {
@@ -416,6 +456,7 @@ public class ObjectVersionService {
 
             PropertyValue persisted = propertyValueRepository.save(clone);
             target.getPropertyValues().add(persisted);
+            copiedDefs.add(value.getPropertyDef().getId());
 
             List<PropertyValueMulti> multiValues = propertyValueMultiRepository.findAllByPropertyValueId(value.getId());
             for (PropertyValueMulti multi : multiValues) {
@@ -425,6 +466,7 @@ public class ObjectVersionService {
                 propertyValueMultiRepository.save(cloneMulti);
             }
         }
+        return copiedDefs;
     }
 
     /**
@@ -448,11 +490,18 @@ public class ObjectVersionService {
 
 
 
+    /**
+     * Deletes a version and moves the object's current/first version pointers to the remaining versions.
+     */
     @Transactional
     public void deleteVersion(Long versionId) {
         var version = versionRepository.findById(versionId)
                 .orElseThrow(() -> new IllegalArgumentException("Version not found: " + versionId));
+        Long objectId = version.getObject().getId();
+        objectRepository.findByIdForUpdate(objectId);
         versionRepository.delete(version);
+        objectRepository.refreshVersionPointers(objectId);
+        viewResultCache.invalidateAllAfterCommit();
     }
 
     @Transactional(readOnly = true)
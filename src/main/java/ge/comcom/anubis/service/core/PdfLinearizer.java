@@ -0,0 +1,139 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.DocumentPreviewProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Линеаризация PDF-превью («fast web view»): первая страница и её ресурсы переносятся в начало файла,
+ * поэтому просмотрщик с поддержкой Range-запросов показывает её, не дожидаясь загрузки всего документа.
+ * <p>
+ * PDFBox не умеет писать линеаризованные PDF, поэтому используется {@code qpdf --linearize}.
+ * Если qpdf недоступен или завершился с ошибкой, возвращается исходный документ.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PdfLinearizer {
+
+    /** Словарь линеаризации обязан находиться в первом объекте файла. */
+    private static final int LINEARIZATION_PROBE_BYTES = 1024;
+    private static final byte[] LINEARIZED_MARKER = "/Linearized".getBytes(StandardCharsets.US_ASCII);
+
+    /** qpdf: 0 — успех, 3 — успех с предупреждениями. */
+    private static final int QPDF_EXIT_WARNINGS = 3;
+
+    private final DocumentPreviewProperties properties;
+
+    private volatile boolean available;
+
+    @PostConstruct
+    void detectQpdf() {
+        DocumentPreviewProperties.Linearize settings = properties.getLinearize();
+        if (!settings.isEnabled()) {
+            log.info("PDF linearization disabled in configuration");
+            return;
+        }
+        try {
+            Process process = new ProcessBuilder(settings.getQpdfPath(), "--version")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            available = process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            available = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            available = false;
+        }
+        if (available) {
+            log.info("PDF linearization enabled (qpdf: {}, threshold: {})", settings.getQpdfPath(), settings.getThreshold());
+        } else {
+            log.warn("qpdf not found at '{}', PDF previews will not be linearized", settings.getQpdfPath());
+        }
+    }
+
+    /**
+     * Возвращает линеаризованную копию PDF, если он больше порога и ещё не линеаризован;
+     * иначе — исходный массив.
+     */
+    public byte[] linearizeIfNeeded(byte[] pdf) {
+        DocumentPreviewProperties.Linearize settings = properties.getLinearize();
+        if (!available || !settings.isEnabled() || pdf == null
+                || pdf.length < settings.getThreshold().toBytes() || isLinearized(pdf)) {
+            return pdf;
+        }
+
+        Path input = null;
+        Path output = null;
+        try {
+            input = Files.createTempFile("anubis-preview-", ".pdf");
+            output = Files.createTempFile("anubis-preview-lin-", ".pdf");
+            Files.write(input, pdf);
+
+            List<String> command = List.of(settings.getQpdfPath(), "--linearize",
+                    input.toString(), output.toString());
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+
+            if (!process.waitFor(settings.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                log.warn("qpdf linearization timed out after {}", settings.getTimeout());
+                return pdf;
+            }
+            int exitCode = process.exitValue();
+            if (exitCode != 0 && exitCode != QPDF_EXIT_WARNINGS) {
+                log.warn("qpdf linearization failed with exit code {}", exitCode);
+                return pdf;
+            }
+
+            byte[] linearized = Files.readAllBytes(output);
+            log.debug("Linearized PDF preview: {} -> {} bytes", pdf.length, linearized.length);
+            return linearized.length > 0 ? linearized : pdf;
+        } catch (IOException e) {
+            log.warn("PDF linearization failed: {}", e.getMessage());
+            return pdf;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return pdf;
+        } finally {
+            deleteQuietly(input);
+            deleteQuietly(output);
+        }
+    }
+
+    private static boolean isLinearized(byte[] pdf) {
+        int limit = Math.min(pdf.length, LINEARIZATION_PROBE_BYTES) - LINEARIZED_MARKER.length;
+        outer:
+        for (int i = 0; i <= limit; i++) {
+            for (int j = 0; j < LINEARIZED_MARKER.length; j++) {
+                if (pdf[i + j] != LINEARIZED_MARKER[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+}
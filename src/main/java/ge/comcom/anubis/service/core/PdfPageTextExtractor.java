@@ -0,0 +1,141 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.OcrProperties;
+import ge.comcom.anubis.config.TextExtractionProperties;
+import ge.comcom.anubis.integration.ocr.RemoteOcrClient;
+import ge.comcom.anubis.integration.ocr.RemoteOcrResponse;
+import ge.comcom.anubis.util.TextChunker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Постраничное извлечение текста PDF.
+ * <p>
+ * Страницы с текстовым слоем читаются PDFBox, остальные рендерятся в PNG и распознаются OCR-шлюзом
+ * по одной, параллельно (не больше {@code anubis.text-extraction.pdf.ocr-parallelism} страниц документа).
+ * Рендеринг идёт последовательно, т.к. {@link PDFRenderer} не потокобезопасен. Текст страниц
+ * собирается в исходном порядке.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PdfPageTextExtractor {
+
+    private final TextExtractionProperties properties;
+    private final RemoteOcrClient remoteOcrClient;
+    private final OcrProperties ocrProperties;
+    private final MeterRegistry meterRegistry;
+
+    public String extract(PDDocument document, String fileName) throws IOException {
+        int pageCount = document.getNumberOfPages();
+        String[] pages = new String[pageCount];
+        List<Integer> imagePages = new ArrayList<>();
+
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int page = 0; page < pageCount; page++) {
+            stripper.setStartPage(page + 1);
+            stripper.setEndPage(page + 1);
+            pages[page] = stripper.getText(document);
+            if (meaningfulLength(pages[page]) < properties.getMinPageTextChars()) {
+                imagePages.add(page);
+            }
+        }
+
+        int maxOcrPages = ocrProperties.isEnabled() ? Math.max(0, properties.getPdf().getMaxOcrPages()) : 0;
+        if (imagePages.size() > maxOcrPages) {
+            // Для нераспознанных страниц остаётся то немногое, что есть в текстовом слое
+            log.warn("{} has {} page(s) without text layer, only the first {} are sent to OCR",
+                    fileName, imagePages.size(), maxOcrPages);
+            imagePages = imagePages.subList(0, maxOcrPages);
+        }
+
+        meterRegistry.counter("anubis.index.pdf.pages", "layer", "text").increment(pageCount - imagePages.size());
+        meterRegistry.counter("anubis.index.pdf.pages", "layer", "ocr").increment(imagePages.size());
+
+        if (!imagePages.isEmpty()) {
+            log.debug("{}: {} of {} page(s) need OCR", fileName, imagePages.size(), pageCount);
+            ocrPages(document, fileName, imagePages, pages);
+        }
+
+        // Страницы разделяются \f, чтобы фрагменты для поиска по возможности совпадали со страницами
+        StringBuilder text = new StringBuilder();
+        for (String pageText : pages) {
+            if (pageText != null && !pageText.isBlank()) {
+                text.append(pageText.trim()).append('\n').append(TextChunker.PAGE_BREAK).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private void ocrPages(PDDocument document, String fileName, List<Integer> imagePages, String[] pages) {
+        PDFRenderer renderer = new PDFRenderer(document);
+        float dpi = properties.getPdf().getOcrDpi();
+        String baseName = baseName(fileName);
+
+        Flux.fromIterable(imagePages)
+                // concatMap: следующая страница рендерится только после предыдущей
+                .concatMap(page -> Mono.fromCallable(() -> new RenderedPage(page, render(renderer, page, dpi)))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMapSequential(rendered -> remoteOcrClient
+                                .extractAsync(() -> new ByteArrayInputStream(rendered.png()),
+                                        baseName + "-p" + (rendered.page() + 1) + ".png")
+                                .map(response -> new PageText(rendered.page(), textOf(response)))
+                                .defaultIfEmpty(new PageText(rendered.page(), "")),
+                        Math.max(1, properties.getPdf().getOcrParallelism()))
+                .filter(pageText -> !pageText.text().isBlank())
+                .doOnNext(pageText -> pages[pageText.page()] = pageText.text())
+                .blockLast();
+    }
+
+    private static byte[] render(PDFRenderer renderer, int page, float dpi) {
+        try {
+            BufferedImage image = renderer.renderImageWithDPI(page, dpi, ImageType.GRAY);
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            return png.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot render PDF page " + (page + 1), e);
+        }
+    }
+
+    private static String textOf(RemoteOcrResponse response) {
+        if (response.combinedText() != null && !response.combinedText().isBlank()) {
+            return response.combinedText();
+        }
+        return response.ocrText() != null ? response.ocrText() : "";
+    }
+
+    private static String baseName(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            return "page";
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    private static int meaningfulLength(String text) {
+        return text == null ? 0 : (int) text.chars().filter(ch -> !Character.isWhitespace(ch)).count();
+    }
+
+    private record RenderedPage(int page, byte[] png) { }
+
+    private record PageText(int page, String text) { }
+}
@@ -0,0 +1,87 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.DocumentPreviewProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш построенных PDF-превью по sha256 бинаря.
+ * <p>
+ * Просмотрщик читает линеаризованный PDF частями (Range, 206), и каждый такой запрос без кэша заново
+ * конвертировал бы и линеаризовал документ. Содержимое бинаря по sha256 не меняется, поэтому записи
+ * не устаревают; размер ограничен числом записей и суммарным объёмом, вытесняются давно не использованные.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PreviewCache {
+
+    private final DocumentPreviewProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = meterRegistry.counter("anubis.preview.cache", "result", "hit");
+        misses = meterRegistry.counter("anubis.preview.cache", "result", "miss");
+        Gauge.builder("anubis.preview.cache.bytes", this, PreviewCache::getTotalBytes)
+                .description("Memory held by cached PDF previews")
+                .register(meterRegistry);
+    }
+
+    /**
+     * PDF-превью бинаря или {@code null}, если его нет в кэше.
+     */
+    public byte[] get(String sha256) {
+        if (!properties.getCache().isEnabled()) {
+            return null;
+        }
+        byte[] cached;
+        synchronized (this) {
+            cached = entries.get(sha256);
+        }
+        (cached != null ? hits : misses).increment();
+        return cached;
+    }
+
+    public void put(String sha256, byte[] pdf) {
+        DocumentPreviewProperties.Cache settings = properties.getCache();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        long maxBytes = settings.getMaxSize().toBytes();
+        if (pdf.length > maxBytes) {
+            log.debug("Preview of {} ({} bytes) exceeds the preview cache size, not cached", sha256, pdf.length);
+            return;
+        }
+
+        synchronized (this) {
+            byte[] previous = entries.put(sha256, pdf);
+            totalBytes += pdf.length - (previous != null ? previous.length : 0);
+
+            Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > settings.getMaxEntries() || totalBytes > maxBytes) && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
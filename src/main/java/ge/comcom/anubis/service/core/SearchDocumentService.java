@@ -0,0 +1,135 @@
+package ge.comcom.anubis.service.core;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Поисковый документ версии (version_search_document): значения свойств с весом B.
+ * Имя объекта в документ не входит — оно сопоставляется с запросом по "object" во время поиска,
+ * поэтому переименование не требует пересборки документов всех версий.
+ * <p>
+ * Изменения отмечаются в течение транзакции ({@link #versionChanged}), а документы пересобираются
+ * одним запросом перед её фиксацией — сколько бы раз ни менялись свойства версии внутри транзакции.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchDocumentService {
+
+    private static final Object PENDING_KEY = new Object();
+
+    private final FullTextQueryCache queryCache;
+
+    /** Тот же запрос заполняет таблицу в миграции V23. */
+    private static final String REBUILD = """
+            INSERT INTO version_search_document (version_id, object_id, properties_text, document, updated_at)
+            SELECT v.version_id,
+                   v.object_id,
+                   p.props,
+                   setweight(to_tsvector('simple', coalesce(p.props, '')), 'B'),
+                   clock_timestamp()
+            FROM object_version v
+            LEFT JOIN LATERAL (
+                SELECT string_agg(x.txt, ' ') AS props
+                FROM (
+                    SELECT pv.value_text AS txt
+                    FROM property_value pv
+                    WHERE pv.object_version_id = v.version_id AND pv.value_text IS NOT NULL
+                    UNION ALL
+                    SELECT li.value_text
+                    FROM property_value pv
+                    JOIN value_list_item li ON li.item_id = pv.value_list_item_id
+                    WHERE pv.object_version_id = v.version_id
+                    UNION ALL
+                    SELECT li.value_text
+                    FROM property_value pv
+                    JOIN property_value_multi m ON m.property_value_id = pv.property_value_id
+                    JOIN value_list_item li ON li.item_id = m.value_list_item_id
+                    WHERE pv.object_version_id = v.version_id
+                    UNION ALL
+                    SELECT r.name
+                    FROM property_value pv
+                    JOIN "object" r ON r.object_id = pv.ref_object_id
+                    WHERE pv.object_version_id = v.version_id
+                ) x
+            ) p ON TRUE
+            WHERE v.version_id = ANY(:versionIds)
+            ON CONFLICT (version_id) DO UPDATE
+                SET object_id = EXCLUDED.object_id,
+                    properties_text = EXCLUDED.properties_text,
+                    document = EXCLUDED.document,
+                    updated_at = EXCLUDED.updated_at
+            """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Свойства версии изменились (новая версия, сохранение значений).
+     */
+    @Transactional
+    public void versionChanged(Long versionId) {
+        if (versionId != null) {
+            pending().versionIds.add(versionId);
+        }
+    }
+
+    /**
+     * Изменилось имя объекта: документы не пересобираются, но закэшированные результаты поиска устаревают.
+     */
+    public void objectRenamed() {
+        queryCache.invalidateAfterCommit();
+    }
+
+    private PendingDocuments pending() {
+        PendingDocuments pending = (PendingDocuments) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending != null) {
+            return pending;
+        }
+
+        PendingDocuments created = new PendingDocuments();
+        TransactionSynchronizationManager.bindResource(PENDING_KEY, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                rebuild(created);
+            }
+
+            @Override
+            public void afterCommit() {
+                queryCache.invalidate();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+            }
+        });
+        return created;
+    }
+
+    private void rebuild(PendingDocuments pending) {
+        if (pending.versionIds.isEmpty()) {
+            return;
+        }
+        // Значения свойств могли быть изменены через JPA и ещё не записаны
+        em.flush();
+        int rebuilt = em.createNativeQuery(REBUILD)
+                .setParameter("versionIds", pending.versionIds.toArray(new Long[0]))
+                .executeUpdate();
+        log.debug("Rebuilt {} search document(s) for versions {}", rebuilt, pending.versionIds);
+    }
+
+    private static final class PendingDocuments {
+        private final Set<Long> versionIds = new LinkedHashSet<>();
+    }
+}
@@ -0,0 +1,229 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.SearchProperties;
+import ge.comcom.anubis.dto.SearchSuggestionDto;
+import ge.comcom.anubis.util.PrefixLexicon;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Автодополнение поискового запроса по словарю терминов в памяти.
+ * <p>
+ * Словарь строится ts_stat по тексту фрагментов (binary_text_chunk, разбор конфигурацией simple —
+ * слова без стемминга) и поисковым документам версий (version_search_document) без учёта прав, поэтому
+ * кандидаты из {@link PrefixLexicon} перед ответом проверяются одним запросом
+ * ({@link FullTextSearchService#findReadableTerms}): остаются только термины, которые встречаются
+ * в документах, доступных пользователю на чтение.
+ * <p>
+ * Раз в {@code refresh-interval} в словарь добавляются термины строк, записанных после прошлого
+ * обновления; раз в {@code rebuild-interval} словарь пересобирается целиком, чтобы убрать термины
+ * удалённых и перезаписанных текстов.
+ * <p>
+ * Время записи строки (clock_timestamp()) предшествует фиксации её транзакции, поэтому строки,
+ * зафиксированные после прошлого обновления, могут иметь время до него. Окно {@code commit-lag} перед
+ * границей просматривается повторно: из него добавляются только термины, которых ещё нет в словаре,
+ * чтобы частоты уже учтённых строк не удваивались.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchLexiconService {
+
+    /** Кандидатов из словаря берётся с запасом: часть может отсеяться проверкой прав. */
+    private static final int CANDIDATE_FACTOR = 3;
+
+    private static final String TERM_STATS = """
+            SELECT s.word, CAST(sum(s.ndoc) AS int) AS frequency
+            FROM (
+                SELECT word, ndoc
+                FROM ts_stat(format(
+                        'SELECT to_tsvector(''simple'', chunk_text) FROM binary_text_chunk
+                         WHERE indexed_at > %L AND indexed_at <= %L',
+                        CAST(:since AS timestamptz), CAST(:until AS timestamptz)))
+                UNION ALL
+                SELECT word, ndoc
+                FROM ts_stat(format(
+                        'SELECT document FROM version_search_document
+                         WHERE updated_at > %L AND updated_at <= %L',
+                        CAST(:since AS timestamptz), CAST(:until AS timestamptz)))
+            ) s
+            WHERE length(s.word) >= :minLength AND s.word ~ '[[:alpha:]]'
+            GROUP BY s.word
+            ORDER BY frequency DESC
+            LIMIT :maxTerms
+            """;
+
+    private final SearchProperties searchProperties;
+    private final FullTextSearchService fullTextSearchService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-lexicon");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile PrefixLexicon lexicon = PrefixLexicon.empty();
+    private Instant watermark;
+    private Instant rebuiltAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        SearchProperties.Autocomplete settings = searchProperties.getAutocomplete();
+        if (!settings.isEnabled()) {
+            log.info("Search autocomplete disabled in configuration");
+            return;
+        }
+        Gauge.builder("anubis.search.lexicon.terms", this, service -> service.lexicon.size())
+                .description("Terms in the autocomplete lexicon")
+                .register(meterRegistry);
+        long interval = Math.max(1, settings.getRefreshInterval().toMillis());
+        refresher.scheduleWithFixedDelay(this::refresh, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Подсказки для последнего слова запроса по убыванию частоты — только термины, которые {@code userId}
+     * может найти.
+     */
+    public List<SearchSuggestionDto> suggest(String query, Long userId, Integer limit) {
+        SearchProperties.Autocomplete settings = searchProperties.getAutocomplete();
+        if (query == null) {
+            return List.of();
+        }
+
+        String normalized = query.stripLeading().toLowerCase(Locale.ROOT);
+        int wordStart = normalized.length();
+        while (wordStart > 0 && Character.isLetterOrDigit(normalized.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        String prefix = normalized.substring(wordStart);
+        if (prefix.length() < Math.max(1, settings.getMinPrefixLength())) {
+            return List.of();
+        }
+
+        int size = Math.min(Math.max(1, limit != null ? limit : settings.getDefaultLimit()), settings.getMaxLimit());
+        List<PrefixLexicon.Entry> candidates = lexicon.suggest(prefix, size * CANDIDATE_FACTOR);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Set<String> readable = new HashSet<>(fullTextSearchService.findReadableTerms(
+                candidates.stream().map(PrefixLexicon.Entry::term).toList(), userId));
+
+        String head = query.stripLeading().substring(0, wordStart);
+        return candidates.stream()
+                .filter(entry -> readable.contains(entry.term()))
+                .limit(size)
+                .map(entry -> SearchSuggestionDto.builder()
+                        .term(entry.term())
+                        .query(head + entry.term())
+                        .frequency(entry.frequency())
+                        .build())
+                .toList();
+    }
+
+    private void refresh() {
+        try {
+            SearchProperties.Autocomplete settings = searchProperties.getAutocomplete();
+            boolean rebuild = rebuiltAt == null
+                    || Instant.now().isAfter(rebuiltAt.plus(settings.getRebuildInterval()));
+            Instant since = rebuild ? Instant.EPOCH : watermark;
+            Instant lateSince = rebuild ? null : since.minus(settings.getCommitLag());
+
+            long started = System.nanoTime();
+            TermStats stats = loadTermStats(since, lateSince, settings);
+            if (rebuild) {
+                lexicon = PrefixLexicon.of(stats.frequencies(), settings.getMaxTerms());
+            } else {
+                PrefixLexicon merged = lexicon.merge(stats.frequencies(), settings.getMaxTerms());
+                Map<String, Integer> missing = new HashMap<>();
+                stats.late().forEach((term, frequency) -> {
+                    if (!merged.contains(term)) {
+                        missing.put(term, frequency);
+                    }
+                });
+                lexicon = merged.merge(missing, settings.getMaxTerms());
+            }
+            watermark = stats.loadedAt();
+            if (rebuild) {
+                rebuiltAt = stats.loadedAt();
+            }
+
+            if (rebuild || !stats.frequencies().isEmpty()) {
+                log.info("Search lexicon {}: {} new term stat(s), {} term(s) total in {} ms",
+                        rebuild ? "rebuilt" : "refreshed", stats.frequencies().size(), lexicon.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        } catch (Exception e) {
+            // Словарь остаётся прежним, следующая попытка — через refresh-interval
+            log.warn("Search lexicon refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Частоты терминов строк, записанных после {@code since}, и (если задан {@code lateSince}) строк окна
+     * {@code (lateSince, since]}. Момент чтения запоминается как граница следующего обновления.
+     */
+    private TermStats loadTermStats(Instant since, Instant lateSince, SearchProperties.Autocomplete settings) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        return tx.execute(status -> {
+            Instant loadedAt = (Instant) em.createNativeQuery("SELECT clock_timestamp()", Instant.class)
+                    .getSingleResult();
+            Map<String, Integer> late = lateSince != null
+                    ? termFrequencies(lateSince, since, settings)
+                    : Map.of();
+            return new TermStats(termFrequencies(since, loadedAt, settings), late, loadedAt);
+        });
+    }
+
+    private Map<String, Integer> termFrequencies(Instant since, Instant until, SearchProperties.Autocomplete settings) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(TERM_STATS)
+                .setParameter("since", since)
+                .setParameter("until", until)
+                .setParameter("minLength", Math.max(1, settings.getMinPrefixLength()))
+                .setParameter("maxTerms", Math.max(1, settings.getMaxTerms()))
+                .getResultList();
+
+        Map<String, Integer> frequencies = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            frequencies.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        return frequencies;
+    }
+
+    /**
+     * @param late частоты окна commit-lag перед прошлой границей — только для терминов, которых нет в словаре
+     */
+    private record TermStats(Map<String, Integer> frequencies, Map<String, Integer> late, Instant loadedAt) { }
+}
@@ -14,6 +14,7 @@ import ge.comcom.anubis.repository.core.ObjectTypeRepository;
 import ge.comcom.anubis.repository.meta.ClassPropertyRepository;
 import ge.comcom.anubis.repository.meta.ClassRepository;
 import ge.comcom.anubis.repository.security.AclRepository;
+import ge.comcom.anubis.service.view.ViewResultCache;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +35,7 @@ public class ClassService {
     private final ObjectTypeRepository objectTypeRepository;
     private final AclRepository aclRepository;
     private final ObjectClassMapper mapper;
+    private final ViewResultCache viewResultCache;
 
     private final ClassPropertyRepository classPropertyRepository;
 
@@ -90,6 +92,10 @@ public class ClassService {
         if (req.getAclId() != null) {
             Acl acl = aclRepository.findById(req.getAclId())
                     .orElseThrow(() -> new EntityNotFoundException("ACL not found: id=" + req.getAclId()));
+            if (entity.getAcl() == null || !acl.getId().equals(entity.getAcl().getId())) {
+                // ACL класса наследуют все объекты класса без собственного ACL
+                viewResultCache.invalidateAllAfterCommit();
+            }
             entity.setAcl(acl);
         }
 
@@ -20,6 +20,17 @@ import java.util.*;
 @Transactional(readOnly = true)
 public class AclResolverService {
 
+    /**
+     * Joins required by {@link #EFFECTIVE_ACL}; expect version alias {@code v} and object alias {@code o}.
+     */
+    public static final String EFFECTIVE_ACL_JOINS = """
+            LEFT JOIN "class" acl_c ON acl_c.class_id = o.class_id
+            LEFT JOIN object_type acl_t ON acl_t.object_type_id = o.object_type_id
+            """;
+
+    /** Effective ACL of version {@code v} following the inheritance chain. */
+    public static final String EFFECTIVE_ACL = "COALESCE(v.acl_id, o.acl_id, acl_c.acl_id, acl_t.acl_id)";
+
     @PersistenceContext
     private EntityManager em;
 
@@ -34,13 +45,12 @@ public class AclResolverService {
 
         String sql = """
         SELECT v.version_id,
-               COALESCE(v.acl_id, o.acl_id, c.acl_id, t.acl_id) AS effective_acl
+               %s AS effective_acl
         FROM object_version v
         JOIN "object" o ON o.object_id = v.object_id
-        LEFT JOIN "class" c ON c.class_id = o.class_id
-        LEFT JOIN object_type t ON t.object_type_id = o.object_type_id
+        %s
         WHERE v.version_id IN (:ids)
-    """;
+    """.formatted(EFFECTIVE_ACL, EFFECTIVE_ACL_JOINS);
 
         Query q = em.createNativeQuery(sql);
         q.setParameter("ids", versionIds);
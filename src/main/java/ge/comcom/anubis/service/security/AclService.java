@@ -19,6 +19,23 @@ import java.util.*;
 @Transactional(readOnly = true)
 public class AclService {
 
+    /**
+     * ACLs granting read access to user {@code :aclUserId} directly or via group.
+     * Used as a subquery so that access checks run inside the database.
+     */
+    public static final String READABLE_ACL_IDS = """
+            SELECT e.acl_id
+            FROM acl_entry e
+            WHERE e.can_read = true
+              AND (
+                  (e.grantee_type = 'USER' AND e.grantee_id = :aclUserId)
+                  OR
+                  (e.grantee_type = 'GROUP' AND e.grantee_id IN (
+                      SELECT group_id FROM user_group WHERE user_id = :aclUserId
+                  ))
+              )
+            """;
+
     @PersistenceContext
     private EntityManager em;
 
@@ -26,22 +43,10 @@ public class AclService {
      * Returns all ACL IDs where user has read access (directly or via group).
      */
     public Set<Long> getReadableAclIds(Long userId) {
-        String sql = """
-            SELECT DISTINCT a.acl_id
-            FROM acl_entry e
-            JOIN acl a ON a.acl_id = e.acl_id
-            WHERE (
-                (e.grantee_type = 'USER' AND e.grantee_id = :uid)
-                OR
-                (e.grantee_type = 'GROUP' AND e.grantee_id IN (
-                    SELECT group_id FROM user_group WHERE user_id = :uid
-                ))
-            )
-            AND e.can_read = true
-            """;
+        String sql = "SELECT DISTINCT r.acl_id FROM (" + READABLE_ACL_IDS + ") r";
 
         Query query = em.createNativeQuery(sql);
-        query.setParameter("uid", userId);
+        query.setParameter("aclUserId", userId);
 
         @SuppressWarnings("unchecked")
         List<Number> ids = query.getResultList();
@@ -7,7 +7,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 @Component
 @Slf4j
@@ -28,6 +30,19 @@ public class DatabaseStorageStrategy implements FileStorageStrategy {
         return entity.getBinary() != null ? entity.getBinary().getContent() : null;
     }
 
+    @Override
+    public InputStream openStream(ObjectFileEntity entity) throws IOException {
+        byte[] content = load(entity);
+        if (content == null) {
+            throw new IOException("Binary content is null for file " + entity.getId());
+        }
+        // PgJDBC не читает bytea потоком: и getBytes, и getBinaryStream получают значение целиком,
+        // поэтому содержимое уже в памяти вместе с сущностью и читается без копирования. Размер inline-файла
+        // ограничен только лимитом загрузки (spring.servlet.multipart.max-file-size); большие файлы
+        // следует хранить в файловом хранилище, которое читается потоком с диска.
+        return new ByteArrayInputStream(content);
+    }
+
     @Override
     public void delete(ObjectFileEntity entity) {
         log.debug("Deleted inline file '{}'", entity.getFileName());
@@ -9,6 +9,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
 
 @Component
@@ -39,6 +40,11 @@ public class DiskStorageStrategy implements FileStorageStrategy {
         return Files.readAllBytes(Paths.get(entity.getBinary().getExternalPath()));
     }
 
+    @Override
+    public InputStream openStream(ObjectFileEntity entity) throws IOException {
+        return Files.newInputStream(Paths.get(entity.getBinary().getExternalPath()));
+    }
+
     @Override
     public void delete(ObjectFileEntity entity) throws IOException {
         Files.deleteIfExists(Paths.get(entity.getBinary().getExternalPath()));
@@ -113,6 +113,9 @@ public class FileStorageAdminService {
         if (request.getKind() == StorageKindEnum.S3 && (!StringUtils.hasText(request.getBucket()) || !StringUtils.hasText(request.getEndpoint()))) {
             throw new IllegalArgumentException("S3 storage requires bucket and endpoint");
         }
+        if (request.getKind() == StorageKindEnum.S3 && request.isActive()) {
+            throw new IllegalArgumentException(S3StorageStrategy.NOT_SUPPORTED);
+        }
     }
 
     private void clearExistingDefault(Long excludeId) {
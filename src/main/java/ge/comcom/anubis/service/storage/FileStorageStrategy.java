@@ -4,9 +4,15 @@ import ge.comcom.anubis.entity.core.FileStorageEntity;
 import ge.comcom.anubis.entity.core.ObjectFileEntity;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
 
 public interface FileStorageStrategy {
     void save(FileStorageEntity storage, ObjectFileEntity entity, MultipartFile file) throws IOException;
     byte[] load(ObjectFileEntity entity) throws IOException;
+
+    /**
+     * Opens the stored content for sequential reading without copying it into a new array or temp file.
+     */
+    InputStream openStream(ObjectFileEntity entity) throws IOException;
     void delete(ObjectFileEntity entity) throws IOException;
 }
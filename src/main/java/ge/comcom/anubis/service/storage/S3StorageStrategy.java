@@ -1,36 +1,58 @@
 package ge.comcom.anubis.service.storage;
 
-import ge.comcom.anubis.entity.core.FileBinaryEntity;
 import ge.comcom.anubis.entity.core.FileStorageEntity;
 import ge.comcom.anubis.entity.core.ObjectFileEntity;
+import ge.comcom.anubis.enums.StorageKindEnum;
+import ge.comcom.anubis.repository.core.FileStorageRepository;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.util.List;
 
+/**
+ * S3-compatible storage is not implemented yet: there is no S3 client in this build. Every operation
+ * throws {@link UnsupportedOperationException} (501 on download), and the application refuses to start
+ * while an active S3 storage is configured, instead of accepting uploads it cannot read back.
+ */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class S3StorageStrategy implements FileStorageStrategy {
 
+    static final String NOT_SUPPORTED = "S3 storage is not supported in this build";
+
+    private final FileStorageRepository fileStorageRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkNotConfigured() {
+        List<String> active = fileStorageRepository.findByKind(StorageKindEnum.S3).stream()
+                .filter(FileStorageEntity::isActive)
+                .map(FileStorageEntity::getName)
+                .toList();
+        if (!active.isEmpty()) {
+            throw new IllegalStateException(NOT_SUPPORTED + "; deactivate storages " + active);
+        }
+    }
+
     @Override
-    public void save(FileStorageEntity storage, ObjectFileEntity entity, MultipartFile file) throws IOException {
-        String key = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        // Здесь можно вызвать MinIO / AWS SDK клиент для загрузки
-        var binary = new FileBinaryEntity();
-        binary.setInline(false);
-        binary.setExternalPath(key);
-        binary.setContent(null);
-        binary.setMimeType(file.getContentType());
-        binary.setSize(file.getSize());
-        entity.setBinary(binary);
-        log.info("Stored file '{}' in S3 bucket '{}' with key '{}'", file.getOriginalFilename(), storage.getBucket(), key);
+    public void save(FileStorageEntity storage, ObjectFileEntity entity, MultipartFile file) {
+        throw new UnsupportedOperationException(NOT_SUPPORTED + ": cannot store '" + file.getOriginalFilename()
+                + "' in bucket '" + storage.getBucket() + "'");
     }
 
     @Override
     public byte[] load(ObjectFileEntity entity) {
-        throw new UnsupportedOperationException("S3 download not implemented yet");
+        throw new UnsupportedOperationException(NOT_SUPPORTED + ": cannot read file " + entity.getId());
+    }
+
+    @Override
+    public InputStream openStream(ObjectFileEntity entity) {
+        throw new UnsupportedOperationException(NOT_SUPPORTED + ": cannot read file " + entity.getId());
     }
 
     @Override
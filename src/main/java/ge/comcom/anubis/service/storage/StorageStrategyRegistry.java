@@ -1,6 +1,8 @@
 package ge.comcom.anubis.service.storage;
 
+import ge.comcom.anubis.entity.core.FileBinaryEntity;
 import ge.comcom.anubis.entity.core.FileStorageEntity;
+import ge.comcom.anubis.entity.core.ObjectFileEntity;
 import ge.comcom.anubis.enums.StorageKindEnum;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -23,4 +25,16 @@ public class StorageStrategyRegistry {
             case S3 -> s3;
         };
     }
+
+    /**
+     * Strategy that holds the content of the given file: inline binaries live in the database,
+     * external ones in the file's storage (filesystem if the storage is not set).
+     */
+    public FileStorageStrategy resolveFor(ObjectFileEntity file) {
+        FileBinaryEntity binary = file.getBinary();
+        if (binary == null || binary.isInline()) {
+            return db;
+        }
+        return file.getStorage() != null ? resolve(file.getStorage()) : fs;
+    }
 }
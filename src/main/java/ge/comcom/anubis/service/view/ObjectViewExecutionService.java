@@ -1,10 +1,18 @@
 package ge.comcom.anubis.service.view;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import ge.comcom.anubis.config.ViewExecutionProperties;
+import ge.comcom.anubis.dto.FacetDto;
 import ge.comcom.anubis.dto.ObjectVersionDto;
+import ge.comcom.anubis.dto.ObjectViewPageDto;
+import ge.comcom.anubis.dto.ViewGroupDto;
+import ge.comcom.anubis.dto.ViewGroupLevelDto;
 import ge.comcom.anubis.entity.core.ObjectVersionEntity;
 import ge.comcom.anubis.entity.view.ObjectViewEntity;
+import ge.comcom.anubis.entity.view.ObjectViewGroupingEntity;
+import ge.comcom.anubis.enums.PropertyDataType;
 import ge.comcom.anubis.repository.view.ObjectViewRepository;
+import ge.comcom.anubis.service.core.FacetService;
 import ge.comcom.anubis.service.core.FullTextSearchService;
 import ge.comcom.anubis.service.security.AclResolverService;
 import ge.comcom.anubis.service.security.AclService;
@@ -13,27 +21,40 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import ge.comcom.anubis.mapper.ObjectVersionMapper;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Executes saved view filter_json and returns matching ObjectVersionEntities.
  * Supports:
  *  - Compound AND/OR filters
  *  - FTS (propertyDefId == 0)
- *  - ACL
+ *  - ACL: effective ACL chain (version → object → class → type) checked inside the SQL
  *  - linkRole / reverseLinkRole via EXISTS(object_link)
  *  - Typed properties: value_text / value_number / value_date / value_boolean
  *  - Ref/value-list: ref_object_id / value_list_item_id
  *  - Per-propertyDef LEFT JOIN aliasing: pv_<defId>
+ *  - Current versions only (object.current_version_id) unless the view sets all_versions
+ *  - Groupings: per-level GROUP BY counts and drill-down by the parent group keys
+ *  - Compiled query cached per view until its updated_at changes; parameter names are deterministic
+ *  - Ungrouped results cached as version id bitmaps per (view, compiled filter, readable ACL set)
  */
 @Service
 @RequiredArgsConstructor
@@ -43,61 +64,464 @@ public class ObjectViewExecutionService {
 
     private final ObjectViewRepository viewRepository;
     private final FullTextSearchService fullTextSearchService;
-    private final AclResolverService aclResolverService;
-    private final AclService aclService;
+    private final FacetService facetService;
     private final ObjectVersionMapper versionMapper;
     private final com.fasterxml.jackson.databind.ObjectMapper om;
+    private final ViewExecutionProperties viewProperties;
+    private final ViewResultCache resultCache;
+    private final AclService aclService;
+
+    /**
+     * Ключ группы версий без значения свойства (в ответе и в пути перехода). Не совпадает ни с одним
+     * настоящим ключом и, в отличие от пустой строки, не теряется при разборе списка из параметра запроса.
+     */
+    public static final String GROUP_KEY_NONE = "~";
+
+    /** view_id → скомпилированный запрос; актуальность проверяется по updated_at представления. */
+    private final Map<Long, CompiledView> compiledViews = new ConcurrentHashMap<>();
 
     @PersistenceContext
     private EntityManager em;
 
+    /**
+     * Весь результат представления одним списком — прежний ответ {@code GET /{id}/execute/{userId}}.
+     * Читается страницами {@link #executePage} наибольшего размера, поэтому память на запрос к базе
+     * ограничена, но сам список растёт с результатом; большие представления читаются постранично.
+     */
     public List<ObjectVersionDto> execute(Long viewId, Long userId) {
-        ObjectViewEntity view = viewRepository.findById(viewId)
-                .orElseThrow(() -> new IllegalArgumentException("View not found: " + viewId));
+        List<ObjectVersionDto> versions = new ArrayList<>();
+        Long after = null;
+        do {
+            ObjectViewPageDto page = executePage(viewId, userId, null, after, viewProperties.getMaxPageSize(), false);
+            versions.addAll(page.getItems());
+            after = page.getNextAfter();
+        } while (after != null);
+        return versions;
+    }
 
-        JsonNode filterJson = parseJsonSafely(view.getFilterJson());
+    /**
+     * Страница результата представления в порядке version_id (keyset): следующая страница запрашивается
+     * с {@code after} = {@link ObjectViewPageDto#getNextAfter()} предыдущей.
+     * <p>
+     * Без пути, если результат представления уже есть в кэше ({@link ViewResultCache}), страница
+     * выбирается из него, и общее число версий точное. Иначе фильтр, проверка ACL и выбор страницы
+     * выполняются одним запросом; из базы возвращаются только строки страницы, а полный результат
+     * заполняет в фоне {@link ViewResultWarmer}.
+     *
+     * @param path       ключи групп по уровням группировки представления: страница содержит только версии
+     *                   этой группы (пустой — всё представление)
+     * @param countTotal посчитать общее число доступных версий (не больше {@code anubis.views.count-limit})
+     */
+    public ObjectViewPageDto executePage(Long viewId, Long userId, List<String> path, Long after, Integer limit,
+                                         boolean countTotal) {
+        int pageSize = Math.min(Math.max(1, limit != null ? limit : viewProperties.getDefaultPageSize()),
+                viewProperties.getMaxPageSize());
+        ObjectViewPageDto page = ObjectViewPageDto.builder()
+                .limit(pageSize)
+                .after(after)
+                .items(List.of())
+                .build();
+
+        if ((path == null || path.isEmpty()) && resultCache.isEnabled()) {
+            // Только готовый результат: полный запрос на промахе выполнит прогрев, а не этот запрос
+            RoaringBitmap cached = cachedVersions(viewId, userId);
+            if (cached != null) {
+                return pageFromBitmap(page, cached, viewId, userId, after, pageSize, countTotal);
+            }
+        }
+
+        ViewQuery viewQuery = prepare(viewId, userId, path);
+        if (viewQuery == null) {
+            return page;
+        }
+
+        // Лишняя строка показывает, есть ли следующая страница
+        Query query = em.createNativeQuery("""
+                SELECT r.* FROM object_version r
+                WHERE r.version_id IN (
+                    SELECT DISTINCT v.version_id
+                """ + viewQuery.fromWhere + """
+                    AND v.version_id > :keysetAfter
+                    ORDER BY v.version_id
+                    LIMIT :keysetLimit
+                )
+                ORDER BY r.version_id
+                """, ObjectVersionEntity.class);
+        viewQuery.params.forEach(query::setParameter);
+        query.setParameter("keysetAfter", after != null ? after : 0L);
+        query.setParameter("keysetLimit", pageSize + 1);
+
+        @SuppressWarnings("unchecked")
+        List<ObjectVersionEntity> rows = query.getResultList();
+        boolean hasMore = rows.size() > pageSize;
+        List<ObjectVersionEntity> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        page.setItems(pageRows.stream().map(versionMapper::toDto).toList());
+        page.setNextAfter(hasMore ? pageRows.get(pageRows.size() - 1).getId() : null);
+
+        if (countTotal) {
+            int cap = Math.max(1, viewProperties.getCountLimit());
+            Query count = em.createNativeQuery("SELECT count(*) FROM (SELECT DISTINCT v.version_id "
+                    + viewQuery.fromWhere + "LIMIT :countCap) c");
+            viewQuery.params.forEach(count::setParameter);
+            count.setParameter("countCap", cap);
+            long total = ((Number) count.getSingleResult()).longValue();
+            page.setTotal(total);
+            page.setTotalIsApproximate(total >= cap);
+        }
+
+        log.info("✅ Executed view {} for user {} → {} version(s) after {}, next {}",
+                viewId, userId, page.getItems().size(), after, page.getNextAfter());
+        return page;
+    }
+
+    private ObjectViewPageDto pageFromBitmap(ObjectViewPageDto page, RoaringBitmap versions, Long viewId,
+                                             Long userId, Long after, int pageSize, boolean countTotal) {
+
+        // Лишний id показывает, есть ли следующая страница
+        List<Long> ids = new ArrayList<>(pageSize + 1);
+        PeekableIntIterator it = versions.getIntIterator();
+        if (after != null && after > 0) {
+            // id версий в битовой карте не превышают Integer.MAX_VALUE
+            it.advanceIfNeeded((int) Math.min(after + 1, Integer.MAX_VALUE));
+        }
+        while (it.hasNext() && ids.size() <= pageSize) {
+            ids.add((long) it.next());
+        }
+        boolean hasMore = ids.size() > pageSize;
+        List<Long> pageIds = hasMore ? ids.subList(0, pageSize) : ids;
+
+        if (!pageIds.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            List<ObjectVersionEntity> rows = em.createNativeQuery(
+                            "SELECT r.* FROM object_version r WHERE r.version_id = ANY(:ids) ORDER BY r.version_id",
+                            ObjectVersionEntity.class)
+                    .setParameter("ids", pageIds.toArray(new Long[0]))
+                    .getResultList();
+            page.setItems(rows.stream().map(versionMapper::toDto).toList());
+        }
+        page.setNextAfter(hasMore ? pageIds.get(pageIds.size() - 1) : null);
+        if (countTotal) {
+            page.setTotal(versions.getLongCardinality());
+            page.setTotalIsApproximate(false);
+        }
+
+        log.info("✅ Executed view {} for user {} from result bitmap ({} version(s)) → {} version(s) after {}, next {}",
+                viewId, userId, versions.getLongCardinality(), page.getItems().size(), after, page.getNextAfter());
+        return page;
+    }
+
+    /**
+     * Группы (виртуальные папки) уровня {@code path.size()} внутри групп {@code path}: ключ, подпись
+     * и число доступных версий — одним агрегирующим запросом, без выгрузки самих версий. Содержимое
+     * группы читается {@link #executePage} с тем же путём, дополненным ключом группы.
+     */
+    public ViewGroupLevelDto groups(Long viewId, Long userId, List<String> path, Integer limit) {
+        List<String> parentKeys = path != null ? path : List.of();
+        CompiledView compiled = compiled(viewId);
+        int level = parentKeys.size();
+        if (level >= compiled.levels.size()) {
+            throw new IllegalArgumentException("View " + viewId + " has " + compiled.levels.size()
+                    + " grouping level(s), no level " + level);
+        }
+        GroupLevel grouping = compiled.levels.get(level);
+        int groupLimit = Math.min(Math.max(1, limit != null ? limit : viewProperties.getDefaultGroupLimit()),
+                viewProperties.getMaxGroupLimit());
+
+        ViewGroupLevelDto result = ViewGroupLevelDto.builder()
+                .level(level)
+                .propertyDefId(grouping.propertyDefId)
+                .propertyName(grouping.propertyName)
+                .path(parentKeys)
+                .groups(new ArrayList<>())
+                .hasSubgroups(level + 1 < compiled.levels.size())
+                .build();
+
+        ViewQuery viewQuery = bind(viewId, compiled, userId, parentKeys);
+        if (viewQuery == null) {
+            return result;
+        }
+
+        GroupColumn column = groupColumn(grouping.dataType);
+        Query query = em.createNativeQuery("""
+                WITH hits AS (
+                    SELECT DISTINCT v.version_id
+                """ + viewQuery.fromWhere + """
+                ),
+                grouped AS (
+                    SELECT g.group_key, g.group_label, g.group_sort, count(*) AS cnt
+                    FROM hits h
+                    LEFT JOIN LATERAL (
+                        SELECT DISTINCT %s AS group_key, %s AS group_label, %s AS group_sort
+                        %s
+                        WHERE gv.object_version_id = h.version_id AND gv.property_def_id = :groupDefId
+                          AND %s IS NOT NULL
+                    ) g ON TRUE
+                    GROUP BY g.group_key, g.group_label, g.group_sort
+                )
+                SELECT group_key, group_label, cnt, count(*) OVER () AS group_count
+                FROM grouped
+                ORDER BY group_sort NULLS LAST, group_key NULLS LAST
+                LIMIT :groupLimit
+                """.formatted(column.key(), column.label(), column.sort(), column.from(), column.key()));
+        viewQuery.params.forEach(query::setParameter);
+        query.setParameter("groupDefId", grouping.propertyDefId);
+        query.setParameter("groupLimit", groupLimit);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        for (Object[] row : rows) {
+            result.getGroups().add(ViewGroupDto.builder()
+                    .key(row[0] != null ? (String) row[0] : GROUP_KEY_NONE)
+                    .label((String) row[1])
+                    .count(((Number) row[2]).longValue())
+                    .build());
+            result.setGroupCount(((Number) row[3]).longValue());
+        }
+
+        log.info("Grouped view {} for user {} at level {} (path {}) → {} group(s)",
+                viewId, userId, level, parentKeys, result.getGroupCount());
+        return result;
+    }
+
+    /**
+     * Фасеты результата представления: число версий по типу объекта, классу и элементам
+     * VALUELIST-свойств из {@code propertyDefIds}, с учётом ACL пользователя.
+     */
+    public List<FacetDto> facets(Long viewId, Long userId, List<Long> propertyDefIds, Integer limit) {
+        Set<Long> allowedVersions = resolveVersionIds(viewId, userId);
+        List<FacetDto> facets = facetService.countFacets(allowedVersions, propertyDefIds, limit);
+        log.info("Computed {} facet(s) for view {} and user {} over {} version(s)",
+                facets.size(), viewId, userId, allowedVersions.size());
+        return facets;
+    }
+
+    /**
+     * Все версии, найденные представлением и доступные пользователю по ACL.
+     */
+    private Set<Long> resolveVersionIds(Long viewId, Long userId) {
+        RoaringBitmap versions = readableVersions(viewId, userId);
         if (log.isDebugEnabled()) {
-            log.debug("Starting execute(): viewId={}, userId={}, filterJson={}", viewId, userId, filterJson);
+            log.debug("Found {} readable version ids", versions.getLongCardinality());
         }
-        if (filterJson == null || filterJson.isNull()) {
+
+        Set<Long> versionIds = new LinkedHashSet<>();
+        versions.forEach((int id) -> versionIds.add((long) id));
+        return versionIds;
+    }
+
+    /**
+     * Пересчитывает результат представления для пользователя, если его нет в кэше (прогрев кэша).
+     */
+    public void warm(Long viewId, Long userId) {
+        CompiledView compiled = compiled(viewId);
+        if (compiled.fromWhere == null) {
+            return;
+        }
+        resultCache.warm(resultKey(viewId, compiled, userId), compiled.dependencies,
+                () -> loadVersions(viewId, compiled, userId));
+        log.debug("Warmed view {} for user {}", viewId, userId);
+    }
+
+    /**
+     * Все версии, найденные представлением и доступные пользователю по ACL, — из {@link ViewResultCache}
+     * или одним запросом. Пользователи с одинаковым набором читаемых ACL получают одну и ту же запись.
+     */
+    private RoaringBitmap readableVersions(Long viewId, Long userId) {
+        CompiledView compiled = compiled(viewId);
+        if (compiled.fromWhere == null) {
             log.warn("View {} has empty filter_json", viewId);
-            return List.of();
+            return new RoaringBitmap();
         }
+        return resultCache.get(resultKey(viewId, compiled, userId), compiled.dependencies, userId,
+                () -> loadVersions(viewId, compiled, userId));
+    }
 
-        // ACL: читаемые ACL-ы пользователя
-        Set<Long> readableAcls = aclService.getReadableAclIds(userId);
-        if (log.isDebugEnabled()) {
-            log.debug("User {} readable ACLs: {}", userId, readableAcls);
+    /**
+     * Результат представления, если он уже есть в кэше, иначе {@code null}.
+     */
+    private RoaringBitmap cachedVersions(Long viewId, Long userId) {
+        CompiledView compiled = compiled(viewId);
+        if (compiled.fromWhere == null) {
+            return new RoaringBitmap();
         }
-        if (readableAcls.isEmpty()) {
-            log.info("User {} has no readable ACLs → empty result", userId);
-            return List.of();
+        return resultCache.getIfPresent(resultKey(viewId, compiled, userId), userId);
+    }
+
+    private ViewResultCache.Key resultKey(Long viewId, CompiledView compiled, Long userId) {
+        List<Long> aclIds = aclService.getReadableAclIds(userId).stream().sorted().toList();
+        return new ViewResultCache.Key(viewId, compiled.filterHash, aclIds);
+    }
+
+    private RoaringBitmap loadVersions(Long viewId, CompiledView compiled, Long userId) {
+        ViewQuery viewQuery = bind(viewId, compiled, userId, List.of());
+        RoaringBitmap loaded = new RoaringBitmap();
+        if (viewQuery == null) {
+            return loaded;
         }
+        Query query = em.createNativeQuery("SELECT DISTINCT v.version_id " + viewQuery.fromWhere);
+        viewQuery.params.forEach(query::setParameter);
 
-        // Построить SQL для фильтров (+ параметры + список нужных propertyDefId + FTS)
-        FilterBuildResult built = buildCompoundFilterSql(filterJson);
-        if (log.isDebugEnabled()) {
-            log.debug("Filter SQL: [{}], params: {}, requiredPropertyDefs: {}, fullTextValue: {}",
-                    built.conditionSql, built.params, built.requiredPropertyDefs, built.fullTextValue);
+        @SuppressWarnings("unchecked")
+        List<Number> rows = query.getResultList();
+        for (Number n : rows) loaded.add(n.intValue());
+        return loaded;
+    }
+
+    /**
+     * FROM/WHERE запроса представления с параметрами или {@code null}, если результат заведомо пуст
+     * (пустой фильтр, FTS ничего не нашёл). Действующий ACL версии (версия → объект → класс → тип)
+     * сверяется с читаемыми ACL пользователя в самом запросе.
+     * <p>
+     * Текст запроса берётся из скомпилированного шаблона представления; здесь только подставляются
+     * пользователь и найденные FTS версии. Тот же запрос выгружает представление ({@link ViewExportService}).
+     */
+    ViewQuery prepare(Long viewId, Long userId, List<String> path) {
+        return bind(viewId, compiled(viewId), userId, path != null ? path : List.of());
+    }
+
+    /**
+     * Проверяет путь группировки без выполнения запроса: выгрузка вызывает её до записи ответа.
+     */
+    void checkPath(Long viewId, List<String> path) {
+        checkPath(viewId, compiled(viewId), path != null ? path : List.of());
+    }
+
+    private void checkPath(Long viewId, CompiledView compiled, List<String> path) {
+        if (path.size() > compiled.levels.size()) {
+            throw new IllegalArgumentException("View " + viewId + " has " + compiled.levels.size()
+                    + " grouping level(s), path " + path + " is too deep");
+        }
+    }
+
+    private ViewQuery bind(Long viewId, CompiledView compiled, Long userId, List<String> path) {
+        if (compiled.fromWhere == null) {
+            log.warn("View {} has empty filter_json", viewId);
+            return null;
         }
+        checkPath(viewId, compiled, path);
 
+        Map<String, Object> params = new LinkedHashMap<>(compiled.params);
+        params.put("aclUserId", userId);
 
         // FTS: если задан, ограничим версии
-        Set<Long> ftsIds = null;
-        if (built.fullTextValue != null && !built.fullTextValue.isBlank()) {
-            ftsIds = fullTextSearchService.findMatchingVersionIds(built.fullTextValue);
+        if (compiled.fullTextValue != null) {
+            Set<Long> ftsIds = fullTextSearchService.findMatchingVersionIds(compiled.fullTextValue);
             if (ftsIds.isEmpty()) {
-                log.info("FTS returned no results for '{}'", built.fullTextValue);
-                return List.of();
+                log.info("FTS returned no results for '{}'", compiled.fullTextValue);
+                return null;
+            }
+            params.put("ftsIds", ftsIds.toArray(new Long[0]));
+        }
+
+        // Группы родительских уровней — как дополнительные условия; текст запроса зависит только от глубины
+        // пути и от того, какие группы в нём — «без значения»
+        if (path.isEmpty()) {
+            return new ViewQuery(compiled.fromWhere, params);
+        }
+        StringBuilder sql = new StringBuilder(compiled.fromWhere);
+        for (int level = 0; level < path.size(); level++) {
+            GroupColumn column = groupColumn(compiled.levels.get(level).dataType);
+            String defParam = "grp_def_" + level;
+            String keyParam = "grp_key_" + level;
+            String key = path.get(level);
+            String match = "SELECT 1 " + column.from()
+                    + " WHERE gv.object_version_id = v.version_id AND gv.property_def_id = :" + defParam;
+            if (key == null || key.equals(GROUP_KEY_NONE)) {
+                sql.append("AND NOT EXISTS (").append(match).append(" AND ").append(column.key()).append(" IS NOT NULL)\n");
+            } else {
+                sql.append("AND EXISTS (").append(match).append(" AND ").append(column.key())
+                        .append(" = :").append(keyParam).append(")\n");
+                params.put(keyParam, key);
+            }
+            params.put(defParam, compiled.levels.get(level).propertyDefId);
+        }
+        return new ViewQuery(sql.toString(), params);
+    }
+
+    /**
+     * Убирает скомпилированный запрос изменённого или удалённого представления после фиксации транзакции
+     * (или сразу, если транзакции нет): иначе параллельный запрос скомпилировал бы прежнее определение заново.
+     */
+    public void evict(Long viewId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            compiledViews.remove(viewId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                compiledViews.remove(viewId);
+            }
+        });
+    }
+
+    /**
+     * Скомпилированный запрос представления из кэша; изменения на этом экземпляре убирают его через
+     * {@link #evict}. Изменения на других экземплярах обнаруживаются по updated_at, который сверяется
+     * не чаще {@code anubis.views.compiled-recheck-interval}, а не при каждом выполнении.
+     */
+    private CompiledView compiled(Long viewId) {
+        CompiledView cached = compiledViews.get(viewId);
+        if (cached != null) {
+            if (System.nanoTime() - cached.checkedAt < viewProperties.getCompiledRecheckInterval().toNanos()) {
+                return cached;
+            }
+            Optional<Instant> updatedAt = viewRepository.findUpdatedAtById(viewId);
+            if (updatedAt.isEmpty()) {
+                compiledViews.remove(viewId);
+                throw new IllegalArgumentException("View not found: " + viewId);
+            }
+            if (cached.updatedAt.equals(updatedAt.get())) {
+                cached.checkedAt = System.nanoTime();
+                return cached;
             }
         }
 
-        // Базовый SELECT
-        StringBuilder sql = new StringBuilder("""
-            SELECT DISTINCT v.version_id
-            FROM object_version v
-            JOIN "object" o ON o.object_id = v.object_id
-            """);
+        ObjectViewEntity view = viewRepository.findById(viewId)
+                .orElseThrow(() -> new IllegalArgumentException("View not found: " + viewId));
+        CompiledView compiled = compile(view);
+        compiledViews.put(viewId, compiled);
+        log.debug("Compiled view {} (updated at {})", viewId, compiled.updatedAt);
+        return compiled;
+    }
+
+    /**
+     * Разбирает filter_json в текст запроса с параметрами. Имена параметров нумеруются по порядку
+     * обхода фильтра, поэтому одно и то же определение всегда даёт один и тот же SQL — и подготовленный
+     * запрос JDBC, и план PostgreSQL переиспользуются между выполнениями.
+     */
+    private CompiledView compile(ObjectViewEntity view) {
+        JsonNode filterJson = parseJsonSafely(view.getFilterJson());
+        if (log.isDebugEnabled()) {
+            log.debug("Compiling view query: viewId={}, filterJson={}", view.getId(), filterJson);
+        }
+        List<GroupLevel> levels = view.getGroupings().stream()
+                .sorted(Comparator.comparing(ObjectViewGroupingEntity::getLevel))
+                .map(g -> new GroupLevel(g.getPropertyDef().getId(), g.getPropertyDef().getName(),
+                        g.getPropertyDef().getDataType()))
+                .toList();
+        if (filterJson == null || filterJson.isNull()) {
+            return new CompiledView(view.getUpdatedAt(), null, Map.of(), null, levels, null, null);
+        }
+
+        // Построить SQL для фильтров (+ параметры + список нужных propertyDefId + FTS)
+        FilterBuildResult built = buildCompoundFilterSql(filterJson, new ParamNames());
+        if (log.isDebugEnabled()) {
+            log.debug("Filter SQL: [{}], params: {}, requiredPropertyDefs: {}, fullTextValue: {}",
+                    built.conditionSql, built.params, built.requiredPropertyDefs, built.fullTextValue);
+        }
+
+        // Базовый FROM (по умолчанию только текущие версии объектов) + цепочка наследования ACL
+        StringBuilder sql = new StringBuilder(Boolean.TRUE.equals(view.getAllVersions())
+                ? """
+                    FROM object_version v
+                    JOIN "object" o ON o.object_id = v.object_id
+                    """
+                : """
+                    FROM "object" o
+                    JOIN object_version v ON v.version_id = o.current_version_id
+                    """).append(AclResolverService.EFFECTIVE_ACL_JOINS);
 
         // Для каждого уникального propertyDefId — свой JOIN
         for (Long defId : built.requiredPropertyDefs) {
@@ -111,10 +535,15 @@ public class ObjectViewExecutionService {
 
         sql.append("WHERE 1=1\n");
 
-        // Ограничение по FTS, если есть
-        if (ftsIds != null && !ftsIds.isEmpty()) {
+        // ACL: только версии, чей действующий ACL пользователь может читать
+        sql.append("AND ").append(AclResolverService.EFFECTIVE_ACL)
+                .append(" IN (").append(AclService.READABLE_ACL_IDS).append(")\n");
+
+        // Ограничение по FTS, если есть (версии подставляются при выполнении)
+        String fullTextValue = built.fullTextValue != null && !built.fullTextValue.isBlank()
+                ? built.fullTextValue : null;
+        if (fullTextValue != null) {
             sql.append("AND v.version_id = ANY(:ftsIds)\n");
-            built.params.put("ftsIds", ftsIds.toArray(new Long[0]));
         }
 
         // Условия из фильтра, если есть
@@ -123,62 +552,33 @@ public class ObjectViewExecutionService {
         }
 
         if (log.isDebugEnabled()) {
-            log.debug("Final SQL for view {}: \n{}", viewId, sql.toString());
-        }
-
-        Query query = em.createNativeQuery(sql.toString());
-        built.params.forEach(query::setParameter);
-
-        @SuppressWarnings("unchecked")
-        List<Number> versionIdsRaw = query.getResultList();
-        if (log.isDebugEnabled()) {
-            log.debug("Found {} version ids before ACL filtering", versionIdsRaw.size());
-        }
-        if (versionIdsRaw.isEmpty()) {
-            log.debug("No matches before ACL filtering");
-            return List.of();
-        }
-
-        Set<Long> versionIds = new HashSet<>();
-        for (Number n : versionIdsRaw) versionIds.add(n.longValue());
-
-        if (log.isDebugEnabled()) {
-            log.debug("Filtering by ACL: readableAcls.size={}, versionIds.size={}", readableAcls.size(), versionIds.size());
-        }
-
-        // ACL разрешения на версии
-        Map<Long, Long> effectiveAcls = aclResolverService.resolveEffectiveAclIds(versionIds);
-        Set<Long> allowedVersions = new LinkedHashSet<>();
-        for (Map.Entry<Long, Long> e : effectiveAcls.entrySet()) {
-            if (readableAcls.contains(e.getValue())) {
-                allowedVersions.add(e.getKey());
-            }
+            log.debug("Final SQL for view {}: \n{}", view.getId(), sql);
         }
+        // Связи и пустое условие пропускают версии без значений проверяемых свойств
+        ViewResultCache.Dependencies dependencies = new ViewResultCache.Dependencies(
+                Set.copyOf(built.requiredPropertyDefs),
+                built.usesLinks || built.conditionSql.isBlank(),
+                built.usesLinks,
+                fullTextValue != null);
+        String sqlText = sql.toString();
+        return new CompiledView(view.getUpdatedAt(), sqlText, Collections.unmodifiableMap(built.params),
+                fullTextValue, levels, filterHash(sqlText, built.params, fullTextValue), dependencies);
+    }
 
-        if (log.isDebugEnabled()) {
-            log.debug("After ACL filtering: allowedVersions.size={}", allowedVersions.size());
-        }
-        if (allowedVersions.isEmpty()) {
-            log.info("User {} has no readable versions after ACL filtering", userId);
-            return List.of();
+    /**
+     * Хэш скомпилированного запроса: текст, значения параметров и FTS-условие. Одинаковые фильтры дают
+     * одинаковый хэш, изменённый — новый, поэтому старые записи кэша результатов просто перестают читаться.
+     */
+    private static String filterHash(String sql, Map<String, Object> params, String fullTextValue) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(sql.getBytes(StandardCharsets.UTF_8));
+            params.forEach((name, value) -> digest.update(("\n" + name + "=" + value).getBytes(StandardCharsets.UTF_8)));
+            digest.update(("\nfts=" + fullTextValue).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-
-        // Финальный выбор
-        Query q2 = em.createNativeQuery("""
-            SELECT * FROM object_version
-            WHERE version_id = ANY(:ids)
-            """, ObjectVersionEntity.class);
-        q2.setParameter("ids", allowedVersions.toArray(new Long[0]));
-
-        @SuppressWarnings("unchecked")
-        List<ObjectVersionEntity> result = q2.getResultList();
-
-        List<ObjectVersionDto> dtoList = result.stream()
-            .map(versionMapper::toDto)
-            .toList();
-
-        log.info("✅ Executed view {} for user {} → {} version(s)", viewId, userId, dtoList.size());
-        return dtoList;
     }
 
     public JsonNode parseJsonSafely(Object raw) {
@@ -217,11 +617,100 @@ public class ObjectViewExecutionService {
         final Map<String, Object> params = new LinkedHashMap<>();
         final Set<Long> requiredPropertyDefs = new LinkedHashSet<>();
         String fullTextValue;
+        boolean usesLinks;
+    }
+
+    /**
+     * Шаблон запроса представления: FROM/WHERE ({@code null} для пустого фильтра), значения фильтра,
+     * текст FTS-условия, уровни группировки, а также хэш фильтра и зависимости результата для кэша.
+     */
+    private static class CompiledView {
+        final Instant updatedAt;
+        final String fromWhere;
+        final Map<String, Object> params;
+        final String fullTextValue;
+        final List<GroupLevel> levels;
+        final String filterHash;
+        final ViewResultCache.Dependencies dependencies;
+        /** Когда updated_at последний раз сверялся с базой (System.nanoTime). */
+        volatile long checkedAt = System.nanoTime();
+
+        CompiledView(Instant updatedAt, String fromWhere, Map<String, Object> params, String fullTextValue,
+                     List<GroupLevel> levels, String filterHash, ViewResultCache.Dependencies dependencies) {
+            this.updatedAt = updatedAt;
+            this.fromWhere = fromWhere;
+            this.params = params;
+            this.fullTextValue = fullTextValue;
+            this.levels = levels;
+            this.filterHash = filterHash;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static class GroupLevel {
+        final Long propertyDefId;
+        final String propertyName;
+        final PropertyDataType dataType;
+
+        GroupLevel(Long propertyDefId, String propertyName, PropertyDataType dataType) {
+            this.propertyDefId = propertyDefId;
+            this.propertyName = propertyName;
+            this.dataType = dataType;
+        }
+    }
+
+    /**
+     * Значение свойства как ключ группы (текст), подпись и значение для сортировки групп; {@code from}
+     * читает значения версии через алиас gv. Один и тот же ключ строит группы и отбирает версии группы
+     * при переходе внутрь, поэтому ключи совпадают без приведения типов на клиенте.
+     */
+    private record GroupColumn(String from, String key, String label, String sort) { }
+
+    private static GroupColumn groupColumn(PropertyDataType type) {
+        return switch (type) {
+            case NUMBER -> new GroupColumn("FROM property_value gv",
+                    "CAST(gv.value_number AS text)", "CAST(gv.value_number AS text)", "gv.value_number");
+            case DATE -> new GroupColumn("FROM property_value gv",
+                    "to_char(gv.value_date, 'YYYY-MM-DD')", "to_char(gv.value_date, 'YYYY-MM-DD')",
+                    "CAST(gv.value_date AS date)");
+            case BOOLEAN -> new GroupColumn("FROM property_value gv",
+                    "CAST(gv.value_boolean AS text)", "CAST(gv.value_boolean AS text)", "gv.value_boolean");
+            case LOOKUP -> new GroupColumn("""
+                    FROM property_value gv LEFT JOIN "object" gr ON gr.object_id = gv.ref_object_id""",
+                    "CAST(gv.ref_object_id AS text)", "gr.name", "gr.name");
+            case VALUELIST -> new GroupColumn("""
+                    FROM property_value gv
+                    LEFT JOIN property_value_multi gm ON gm.property_value_id = gv.property_value_id
+                    LEFT JOIN value_list_item gi ON gi.item_id = coalesce(gm.value_list_item_id, gv.value_list_item_id)""",
+                    "CAST(gi.item_id AS text)", "gi.value_text", "gi.value_text");
+            // Текст ключом только через md5: ключи передаются списком в параметре запроса и не должны содержать запятых
+            default -> new GroupColumn("FROM property_value gv",
+                    "md5(nullif(gv.value_text, ''))", "nullif(gv.value_text, '')", "nullif(gv.value_text, '')");
+        };
+    }
+
+    /** Имена параметров по порядку обхода фильтра: role_1, target_2, val_3, ... */
+    private static class ParamNames {
+        private int counter;
+
+        String next(String prefix) {
+            return prefix + "_" + (++counter);
+        }
+    }
+
+    static class ViewQuery {
+        final String fromWhere;
+        final Map<String, Object> params;
+
+        ViewQuery(String fromWhere, Map<String, Object> params) {
+            this.fromWhere = fromWhere;
+            this.params = params;
+        }
     }
 
     private static String pvAlias(Long defId) { return "pv_" + defId; }
 
-    private FilterBuildResult buildCompoundFilterSql(JsonNode node) {
+    private FilterBuildResult buildCompoundFilterSql(JsonNode node, ParamNames names) {
         FilterBuildResult res = new FilterBuildResult();
         if (node == null || node.isNull()) return res;
 
@@ -229,11 +718,12 @@ public class ObjectViewExecutionService {
         if (node.isArray()) {
             List<String> parts = new ArrayList<>();
             for (JsonNode sub : node) {
-                FilterBuildResult s = buildCompoundFilterSql(sub);
+                FilterBuildResult s = buildCompoundFilterSql(sub, names);
                 if (!s.conditionSql.isBlank()) parts.add(s.conditionSql);
                 res.params.putAll(s.params);
                 res.requiredPropertyDefs.addAll(s.requiredPropertyDefs);
                 if (s.fullTextValue != null) res.fullTextValue = s.fullTextValue;
+                res.usesLinks |= s.usesLinks;
             }
             res.conditionSql = joinIfNotEmpty("AND", parts);
             if (log.isDebugEnabled()) {
@@ -249,11 +739,12 @@ public class ObjectViewExecutionService {
 
             List<String> parts = new ArrayList<>();
             for (JsonNode sub : node.get("conditions")) {
-                FilterBuildResult s = buildCompoundFilterSql(sub);
+                FilterBuildResult s = buildCompoundFilterSql(sub, names);
                 if (!s.conditionSql.isBlank()) parts.add(s.conditionSql);
                 res.params.putAll(s.params);
                 res.requiredPropertyDefs.addAll(s.requiredPropertyDefs);
                 if (s.fullTextValue != null) res.fullTextValue = s.fullTextValue;
+                res.usesLinks |= s.usesLinks;
             }
             res.conditionSql = joinIfNotEmpty(operator, parts);
             if (log.isDebugEnabled()) {
@@ -268,8 +759,8 @@ public class ObjectViewExecutionService {
             if (node.has("linkRole") && node.has("value")) {
                 String role = node.get("linkRole").asText();
                 long targetId = node.get("value").asLong();
-                String pRole = "role_" + uuid8();
-                String pId = "target_" + uuid8();
+                String pRole = names.next("role");
+                String pId = names.next("target");
 
                 String existsSql = """
                     EXISTS (
@@ -281,6 +772,7 @@ public class ObjectViewExecutionService {
                     """.formatted(pRole, pId).trim();
 
                 res.conditionSql = "(" + existsSql + ")";
+                res.usesLinks = true;
                 res.params.put(pRole, role);
                 res.params.put(pId, targetId);
                 if (log.isDebugEnabled()) {
@@ -292,8 +784,8 @@ public class ObjectViewExecutionService {
             if (node.has("reverseLinkRole") && node.has("value")) {
                 String role = node.get("reverseLinkRole").asText();
                 long sourceId = node.get("value").asLong();
-                String pRole = "role_" + uuid8();
-                String pId = "source_" + uuid8();
+                String pRole = names.next("role");
+                String pId = names.next("source");
 
                 String existsSql = """
                     EXISTS (
@@ -305,6 +797,7 @@ public class ObjectViewExecutionService {
                     """.formatted(pRole, pId).trim();
 
                 res.conditionSql = "(" + existsSql + ")";
+                res.usesLinks = true;
                 res.params.put(pRole, role);
                 res.params.put(pId, sourceId);
                 if (log.isDebugEnabled()) {
@@ -338,7 +831,7 @@ public class ObjectViewExecutionService {
                         : inferKindFromValue(node.get("value"));
 
                 // Построить условие и параметры
-                PropertyCondition cond = buildPropertyCondition(alias, op, kind, node.get("value"));
+                PropertyCondition cond = buildPropertyCondition(alias, op, kind, node.get("value"), names);
 
                 res.conditionSql = "(" + cond.sql + ")";
                 res.params.putAll(cond.params);
@@ -369,10 +862,6 @@ public class ObjectViewExecutionService {
         return (n == null || n.isNull()) ? null : n.asText();
     }
 
-    private static String uuid8() {
-        return UUID.randomUUID().toString().replace("-", "").substring(0, 8);
-    }
-
     private static ValueKind parseKindFromDataType(String dt) {
         return switch (dt) {
             case "string", "text" -> ValueKind.TEXT;
@@ -417,9 +906,10 @@ public class ObjectViewExecutionService {
         }
     }
 
-    private PropertyCondition buildPropertyCondition(String alias, String op, ValueKind kind, JsonNode valueNode) {
+    private PropertyCondition buildPropertyCondition(String alias, String op, ValueKind kind, JsonNode valueNode,
+                                                     ParamNames names) {
         Map<String, Object> params = new LinkedHashMap<>();
-        String pVal = "val_" + uuid8();
+        String pVal = names.next("val");
 
         return switch (kind) {
             case TEXT -> {
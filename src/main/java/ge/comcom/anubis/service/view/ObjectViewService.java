@@ -26,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -72,6 +73,7 @@ public class ObjectViewService {
         view.setName(dto.getName());
         view.setIsCommon(dto.getIsCommon());
         view.setSortOrder(dto.getSortOrder());
+        view.setAllVersions(Boolean.TRUE.equals(dto.getAllVersions()));
 
         // ✅ корректно парсим и сохраняем как настоящий JSONB
         view.setFilterJson(executionService.parseJsonSafely(dto.getFilterJson()));
@@ -79,8 +81,11 @@ public class ObjectViewService {
 
         groupingRepository.deleteAll(groupingRepository.findAllByView_IdOrderByLevelAsc(id));
         saveGroupings(view, dto.getGroupings());
+        // Группировки хранятся отдельно: отметка нужна, даже если сами поля представления не изменились
+        view.setUpdatedAt(Instant.now());
 
         ObjectViewEntity updated = viewRepository.save(view);
+        executionService.evict(id);
         log.info("♻️ Updated view '{}' (id={})", updated.getName(), updated.getId());
         log.debug("Updated JSONB: {}", updated.getFilterJson());
         return objectViewMapper.toDto(updated);
@@ -92,6 +97,7 @@ public class ObjectViewService {
             throw new EntityNotFoundException("View not found: " + id);
         }
         viewRepository.deleteById(id);
+        executionService.evict(id);
         log.warn("🗑️ Deleted view id={}", id);
     }
 
@@ -0,0 +1,317 @@
+package ge.comcom.anubis.service.view;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ge.comcom.anubis.config.ViewExecutionProperties;
+import ge.comcom.anubis.entity.meta.PropertyDef;
+import ge.comcom.anubis.entity.view.ObjectViewEntity;
+import ge.comcom.anubis.enums.ExportFormat;
+import ge.comcom.anubis.repository.meta.PropertyDefRepository;
+import ge.comcom.anubis.repository.view.ObjectViewRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка результата представления с выбранными свойствами столбцами (CSV, NDJSON, XLSX).
+ * <p>
+ * Версии отбираются тем же запросом, что и {@link ObjectViewExecutionService#executePage} (фильтр, ACL,
+ * путь группировки), а значения свойств разворачиваются в столбцы в том же SQL. Строки читаются
+ * курсором PostgreSQL порциями по {@code anubis.views.export.fetch-size} и сразу пишутся в ответ,
+ * поэтому память не зависит от размера выгрузки; XLSX держит в памяти только окно строк SXSSF.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ViewExportService {
+
+    /** Постоянные столбцы выгрузки, перед столбцами свойств. */
+    private static final List<String> BASE_COLUMNS =
+            List.of("version_id", "object_id", "object_name", "version_num", "created_at");
+
+    /** Значения свойства версии как текст: ссылки — именем объекта, элементы списков — текстом элемента. */
+    private static final String PROPERTY_COLUMN = """
+            (SELECT string_agg(x.val, '; ' ORDER BY x.val)
+             FROM (
+                 SELECT coalesce(pv.value_text, CAST(pv.value_number AS text), CAST(pv.value_date AS text),
+                                 CAST(pv.value_boolean AS text), r.name, li.value_text, mi.value_text) AS val
+                 FROM property_value pv
+                 LEFT JOIN "object" r ON r.object_id = pv.ref_object_id
+                 LEFT JOIN value_list_item li ON li.item_id = pv.value_list_item_id
+                 LEFT JOIN property_value_multi m ON m.property_value_id = pv.property_value_id
+                 LEFT JOIN value_list_item mi ON mi.item_id = m.value_list_item_id
+                 WHERE pv.object_version_id = ev.version_id AND pv.property_def_id = :%s
+             ) x)""";
+
+    private final ObjectViewExecutionService executionService;
+    private final ObjectViewRepository viewRepository;
+    private final PropertyDefRepository propertyDefRepository;
+    private final ViewExecutionProperties viewProperties;
+    private final ObjectMapper om;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Имя файла выгрузки; заодно проверяет, что представление существует, до начала записи ответа.
+     */
+    @Transactional(readOnly = true)
+    public String filename(Long viewId, ExportFormat format) {
+        ObjectViewEntity view = viewRepository.findById(viewId)
+                .orElseThrow(() -> new EntityNotFoundException("View not found: " + viewId));
+        String base = view.getName() != null ? view.getName().replaceAll("[\\\\/:*?\"<>|]", "_").strip() : "";
+        return (base.isEmpty() ? "view-" + viewId : base) + "." + format.name().toLowerCase();
+    }
+
+    /**
+     * Проверяет путь группировки до начала записи ответа.
+     */
+    @Transactional(readOnly = true)
+    public void checkPath(Long viewId, List<String> path) {
+        executionService.checkPath(viewId, path);
+    }
+
+    /**
+     * Свойства столбцов в порядке запроса; неизвестные id и лишние столбцы — ошибка до начала записи ответа.
+     */
+    @Transactional(readOnly = true)
+    public List<PropertyDef> resolveColumns(List<Long> propertyDefIds) {
+        if (propertyDefIds == null || propertyDefIds.isEmpty()) {
+            return List.of();
+        }
+        int maxColumns = viewProperties.getExport().getMaxColumns();
+        if (propertyDefIds.size() > maxColumns) {
+            throw new IllegalArgumentException("At most " + maxColumns + " property columns can be exported");
+        }
+        Map<Long, PropertyDef> defs = propertyDefRepository.findAllById(propertyDefIds).stream()
+                .collect(Collectors.toMap(PropertyDef::getId, Function.identity()));
+        List<PropertyDef> columns = new ArrayList<>(propertyDefIds.size());
+        for (Long id : propertyDefIds) {
+            PropertyDef def = defs.get(id);
+            if (def == null) {
+                throw new EntityNotFoundException("Property definition not found: " + id);
+            }
+            columns.add(def);
+        }
+        return columns;
+    }
+
+    /**
+     * Пишет все версии представления, доступные пользователю, в {@code out} в порядке version_id.
+     *
+     * @param path    ключи групп по уровням группировки (пустой — всё представление)
+     * @param columns свойства-столбцы из {@link #resolveColumns}
+     * @return число выгруженных строк
+     */
+    @Transactional(readOnly = true)
+    public long export(Long viewId, Long userId, List<String> path, List<PropertyDef> columns,
+                       ExportFormat format, OutputStream out) throws IOException {
+        List<String> header = new ArrayList<>(BASE_COLUMNS);
+        columns.forEach(def -> header.add(def.getName()));
+
+        long rows = 0;
+        try (RowWriter writer = openWriter(format, header, out)) {
+            ObjectViewExecutionService.ViewQuery viewQuery = executionService.prepare(viewId, userId, path);
+            if (viewQuery != null) {
+                StringBuilder sql = new StringBuilder("""
+                        SELECT ev.version_id, ev.object_id, eo.name, ev.version_num, ev.created_at""");
+                for (int i = 0; i < columns.size(); i++) {
+                    sql.append(",\n").append(PROPERTY_COLUMN.formatted("export_def_" + i));
+                }
+                sql.append("""
+
+                        FROM object_version ev
+                        JOIN "object" eo ON eo.object_id = ev.object_id
+                        WHERE ev.version_id IN (
+                            SELECT v.version_id
+                        """).append(viewQuery.fromWhere).append("""
+                        )
+                        ORDER BY ev.version_id
+                        """);
+
+                Query query = em.createNativeQuery(sql.toString());
+                viewQuery.params.forEach(query::setParameter);
+                for (int i = 0; i < columns.size(); i++) {
+                    query.setParameter("export_def_" + i, columns.get(i).getId());
+                }
+                // Курсор: PostgreSQL отдаёт строки порциями только внутри транзакции и с заданным fetch size
+                query.setHint(HibernateHints.HINT_FETCH_SIZE, Math.max(1, viewProperties.getExport().getFetchSize()));
+
+                @SuppressWarnings("unchecked")
+                Stream<Object[]> stream = query.getResultStream();
+                try (stream) {
+                    for (Object[] row : (Iterable<Object[]>) stream::iterator) {
+                        writer.write(row);
+                        rows++;
+                    }
+                }
+            }
+        }
+
+        log.info("Exported view {} for user {} as {} → {} row(s), {} property column(s)",
+                viewId, userId, format, rows, columns.size());
+        return rows;
+    }
+
+    private RowWriter openWriter(ExportFormat format, List<String> header, OutputStream out) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvRowWriter(header, out);
+            case NDJSON -> new NdjsonRowWriter(header, out, om);
+            case XLSX -> new XlsxRowWriter(header, out, viewProperties.getExport().getXlsxWindowRows());
+        };
+    }
+
+    /* ================== writers ================== */
+
+    private interface RowWriter extends AutoCloseable {
+        void write(Object[] row) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static String cellText(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final CSVPrinter printer;
+
+        CsvRowWriter(List<String> header, OutputStream out) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.printer = CSVFormat.RFC4180.builder()
+                    .setHeader(header.toArray(new String[0]))
+                    .build()
+                    .print(writer);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            for (Object value : row) {
+                printer.print(cellText(value));
+            }
+            printer.println();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Поток ответа закрывает контейнер
+            printer.flush();
+        }
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final List<String> header;
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(List<String> header, OutputStream out, ObjectMapper om) throws IOException {
+            this.header = header;
+            this.generator = om.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < row.length; i++) {
+                Object value = row[i];
+                generator.writeFieldName(header.get(i));
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Number number && i < BASE_COLUMNS.size()) {
+                    generator.writeNumber(number.longValue());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeRaw('\n');
+            generator.close();
+        }
+    }
+
+    private static final class XlsxRowWriter implements RowWriter {
+        /** Строк на листе XLSX, не считая заголовка. */
+        private static final int MAX_SHEET_ROWS = 1_048_575;
+
+        private final List<String> header;
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private Sheet sheet;
+        private int rowIndex;
+
+        XlsxRowWriter(List<String> header, OutputStream out, int windowRows) {
+            this.header = header;
+            this.out = out;
+            this.workbook = new SXSSFWorkbook(Math.max(1, windowRows));
+            this.workbook.setCompressTempFiles(true);
+            newSheet();
+        }
+
+        private void newSheet() {
+            sheet = workbook.createSheet("Export " + (workbook.getNumberOfSheets() + 1));
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < header.size(); i++) {
+                row.createCell(i).setCellValue(header.get(i));
+            }
+            rowIndex = 1;
+        }
+
+        @Override
+        public void write(Object[] values) {
+            if (rowIndex > MAX_SHEET_ROWS) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value instanceof Number number && i < BASE_COLUMNS.size()) {
+                    row.createCell(i).setCellValue(number.doubleValue());
+                } else if (value != null) {
+                    row.createCell(i).setCellValue(value.toString());
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                workbook.write(out);
+            } finally {
+                // Удаляет временные файлы окна строк
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package ge.comcom.anubis.service.view;
+
+import ge.comcom.anubis.config.ViewExecutionProperties;
+import ge.comcom.anubis.service.core.FullTextQueryCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов представлений: все version_id, которые представление возвращает пользователю.
+ * <p>
+ * Ключ — view_id, хэш скомпилированного фильтра и набор читаемых ACL, поэтому пользователи с одинаковыми
+ * правами делят одну запись. Запись помнит, от чего зависит: значения каких свойств проверяет фильтр,
+ * есть ли в нём связи и FTS. Изменения данных сбрасывают только затронутые записи после фиксации
+ * транзакции; FTS-записи сверяются с поколением индекса {@link FullTextQueryCache}.
+ * <p>
+ * Кэш также считает обращения к ключам: {@link ViewResultWarmer} пересчитывает самые используемые
+ * из сброшенных. Сброс выполняется в памяти процесса: каждый экземпляр приложения видит только свои записи.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ViewResultCache {
+
+    private final ViewExecutionProperties viewProperties;
+    private final FullTextQueryCache fullTextQueryCache;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Key, Usage> usage = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = meterRegistry.counter("anubis.views.result-cache", "result", "hit");
+        misses = meterRegistry.counter("anubis.views.result-cache", "result", "miss");
+        Gauge.builder("anubis.views.result-cache.bytes", this, ViewResultCache::getTotalBytes)
+                .description("Memory held by cached view result bitmaps")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return viewProperties.getResultCache().isEnabled();
+    }
+
+    /**
+     * Результат из кэша или посчитанный {@code loader}.
+     *
+     * @param userId пользователь, для которого результат пересчитывается при прогреве
+     */
+    public RoaringBitmap get(Key key, Dependencies dependencies, Long userId, Supplier<RoaringBitmap> loader) {
+        ViewExecutionProperties.ResultCache settings = viewProperties.getResultCache();
+        if (!settings.isEnabled()) {
+            return loader.get();
+        }
+        RoaringBitmap cached = getIfPresent(key, userId);
+        return cached != null ? cached : load(key, dependencies, loader, settings);
+    }
+
+    /**
+     * Результат из кэша или {@code null}; промах учитывается, и ключ попадает в кандидаты на прогрев.
+     */
+    public RoaringBitmap getIfPresent(Key key, Long userId) {
+        ViewExecutionProperties.ResultCache settings = viewProperties.getResultCache();
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        recordUsage(key, userId, settings);
+        RoaringBitmap cached = lookup(key);
+        (cached != null ? hits : misses).increment();
+        return cached;
+    }
+
+    /**
+     * Считает и сохраняет результат, если его нет в кэше. Обращением не считается.
+     */
+    public void warm(Key key, Dependencies dependencies, Supplier<RoaringBitmap> loader) {
+        ViewExecutionProperties.ResultCache settings = viewProperties.getResultCache();
+        if (settings.isEnabled() && lookup(key) == null) {
+            load(key, dependencies, loader, settings);
+        }
+    }
+
+    private RoaringBitmap load(Key key, Dependencies dependencies, Supplier<RoaringBitmap> loader,
+                               ViewExecutionProperties.ResultCache settings) {
+        // Поколения читаются до запроса: изменения во время него не дадут сохранить устаревший результат
+        long startGeneration = generation.get();
+        long ftsGeneration = dependencies.fullText() ? fullTextQueryCache.getGeneration() : -1;
+        RoaringBitmap loaded = loader.get();
+        loaded.runOptimize();
+        store(key, new Entry(loaded, dependencies, startGeneration, ftsGeneration, loaded.getSizeInBytes()), settings);
+        return loaded;
+    }
+
+    /**
+     * Изменились значения свойств {@code propertyDefIds} или набор версий объектов (новая версия стала текущей),
+     * у которых есть значения этих свойств. Сбрасываются записи, фильтр которых проверяет одно из этих свойств,
+     * и записи, результат которых зависит не только от значений свойств (связи, пустой фильтр).
+     */
+    public void versionsChanged(Collection<Long> propertyDefIds) {
+        Set<Long> defIds = Set.copyOf(propertyDefIds);
+        invalidateAfterCommit(entry -> entry.dependencies().valueIndependent()
+                || entry.dependencies().propertyDefIds().stream().anyMatch(defIds::contains));
+    }
+
+    /**
+     * Изменились связи объектов.
+     */
+    public void linksChanged() {
+        invalidateAfterCommit(entry -> entry.dependencies().links());
+    }
+
+    /**
+     * Изменения, последствия которых не отслеживаются по отдельности (ACL класса или типа, удаление версии).
+     */
+    public void invalidateAllAfterCommit() {
+        invalidateAfterCommit(entry -> true);
+    }
+
+    /**
+     * Самые используемые ключи, которых сейчас нет в кэше; счётчики обращений при этом уменьшаются вдвое,
+     * чтобы забытые представления со временем выпадали из списка.
+     */
+    public List<Map.Entry<Key, Long>> popularMissing(int limit) {
+        List<Map.Entry<Key, Long>> missing;
+        synchronized (this) {
+            missing = usage.entrySet().stream()
+                    .filter(e -> !entries.containsKey(e.getKey()))
+                    .sorted(Comparator.comparingLong((Map.Entry<Key, Usage> e) -> e.getValue().count.get()).reversed())
+                    .limit(Math.max(0, limit))
+                    .map(e -> Map.entry(e.getKey(), e.getValue().userId))
+                    .toList();
+        }
+        usage.values().removeIf(u -> u.count.updateAndGet(c -> c / 2) == 0);
+        return missing;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void recordUsage(Key key, Long userId, ViewExecutionProperties.ResultCache settings) {
+        Usage existing = usage.get(key);
+        if (existing == null) {
+            // Не даём счётчикам расти без предела, пока прогрев их не проредит
+            if (usage.size() >= settings.getMaxEntries() * 4) {
+                return;
+            }
+            existing = usage.computeIfAbsent(key, k -> new Usage(userId));
+        }
+        existing.count.incrementAndGet();
+        existing.userId = userId;
+    }
+
+    private void invalidateAfterCommit(Predicate<Entry> affected) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(affected);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(affected);
+            }
+        });
+    }
+
+    private void invalidate(Predicate<Entry> affected) {
+        // Результаты, которые считаются прямо сейчас, могли прочитать старые данные
+        generation.incrementAndGet();
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (affected.test(entry)) {
+                    totalBytes -= entry.bytes();
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.debug("Invalidated {} cached view result(s)", removed);
+        }
+    }
+
+    private synchronized RoaringBitmap lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.ftsGeneration() >= 0 && entry.ftsGeneration() != fullTextQueryCache.getGeneration()) {
+            entries.remove(key);
+            totalBytes -= entry.bytes();
+            return null;
+        }
+        return entry.versionIds();
+    }
+
+    private synchronized void store(Key key, Entry entry, ViewExecutionProperties.ResultCache settings) {
+        // Данные изменились, пока выполнялся запрос: результат может быть устаревшим
+        if (entry.generation() != generation.get()) {
+            return;
+        }
+        long maxBytes = settings.getMaxSize().toBytes();
+        if (entry.bytes() > maxBytes) {
+            log.debug("View result for {} ({} bytes) exceeds the result cache size, not cached", key, entry.bytes());
+            return;
+        }
+
+        Entry previous = entries.put(key, entry);
+        totalBytes += entry.bytes() - (previous != null ? previous.bytes() : 0);
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > settings.getMaxEntries() || totalBytes > maxBytes) && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().bytes();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @param filterHash хэш скомпилированного запроса представления
+     * @param aclIds     читаемые пользователем ACL по возрастанию
+     */
+    public record Key(Long viewId, String filterHash, List<Long> aclIds) { }
+
+    /**
+     * От чего зависит результат представления.
+     *
+     * @param propertyDefIds   свойства, значения которых проверяет фильтр
+     * @param valueIndependent версия может попасть в результат без значений этих свойств (связи, пустой фильтр)
+     * @param links            фильтр проверяет связи объектов
+     * @param fullText         фильтр содержит FTS-условие
+     */
+    public record Dependencies(Set<Long> propertyDefIds, boolean valueIndependent, boolean links, boolean fullText) { }
+
+    private record Entry(RoaringBitmap versionIds, Dependencies dependencies, long generation, long ftsGeneration,
+                         long bytes) { }
+
+    private static final class Usage {
+        private final AtomicLong count = new AtomicLong();
+        private volatile Long userId;
+
+        private Usage(Long userId) {
+            this.userId = userId;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ge.comcom.anubis.service.view;
+
+import ge.comcom.anubis.config.ViewExecutionProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Заполнение кэша результатов представлений: раз в {@code warm-interval} самые используемые ключи,
+ * которых нет в кэше (ещё не посчитанные, сброшенные изменениями данных или вытесненные), считаются
+ * в фоне. Запрос страницы полный результат не считает — он читает страницу запросом, пока результат
+ * не появится в кэше.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ViewResultWarmer {
+
+    private final ViewExecutionProperties viewProperties;
+    private final ViewResultCache resultCache;
+    private final ObjectViewExecutionService executionService;
+
+    private final ScheduledExecutorService warmer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "view-result-warmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ViewExecutionProperties.ResultCache settings = viewProperties.getResultCache();
+        if (!settings.isEnabled() || settings.getWarmTop() <= 0) {
+            log.info("View result cache warming disabled in configuration");
+            return;
+        }
+        long interval = Math.max(1, settings.getWarmInterval().toMillis());
+        warmer.scheduleWithFixedDelay(this::warm, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        warmer.shutdownNow();
+    }
+
+    void warm() {
+        List<Map.Entry<ViewResultCache.Key, Long>> missing =
+                resultCache.popularMissing(viewProperties.getResultCache().getWarmTop());
+        for (Map.Entry<ViewResultCache.Key, Long> entry : missing) {
+            Long viewId = entry.getKey().viewId();
+            try {
+                executionService.warm(viewId, entry.getValue());
+            } catch (Exception e) {
+                // Представление могли удалить, пользователя — отключить; следующий запрос посчитает заново
+                log.warn("Failed to warm view {} for user {}: {}", viewId, entry.getValue(), e.getMessage());
+            }
+        }
+        if (!missing.isEmpty()) {
+            log.debug("Warmed {} view result(s)", missing.size());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ge.comcom.anubis.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Неизменяемый словарь терминов с частотами для автодополнения.
+ * <p>
+ * Термины хранятся отсортированными в массиве: все термины с общим префиксом занимают непрерывный
+ * диапазон (как поддерево префиксного дерева), который находится двумя двоичными поисками. Самые частые
+ * термины диапазона выбираются кучей размера {@code limit}. Массивы компактнее узлов дерева и читаются
+ * без блокировок; обновление создаёт новый экземпляр.
+ */
+public final class PrefixLexicon {
+
+    private static final PrefixLexicon EMPTY = new PrefixLexicon(new String[0], new int[0]);
+
+    private static final Comparator<Entry> BY_FREQUENCY = Comparator.comparingInt(Entry::frequency)
+            .thenComparing(Entry::term, Comparator.reverseOrder());
+
+    private final String[] terms;
+    private final int[] frequencies;
+
+    private PrefixLexicon(String[] terms, int[] frequencies) {
+        this.terms = terms;
+        this.frequencies = frequencies;
+    }
+
+    public static PrefixLexicon empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param counts   частоты терминов
+     * @param maxTerms сколько самых частых терминов оставить
+     */
+    public static PrefixLexicon of(Map<String, Integer> counts, int maxTerms) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        if (entries.size() > maxTerms) {
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            entries = entries.subList(0, Math.max(0, maxTerms));
+        }
+        entries.sort(Map.Entry.comparingByKey());
+
+        String[] terms = new String[entries.size()];
+        int[] frequencies = new int[entries.size()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = entries.get(i).getKey();
+            frequencies[i] = entries.get(i).getValue();
+        }
+        return new PrefixLexicon(terms, frequencies);
+    }
+
+    /**
+     * Новый словарь, в котором частоты из {@code delta} прибавлены к текущим.
+     */
+    public PrefixLexicon merge(Map<String, Integer> delta, int maxTerms) {
+        if (delta.isEmpty()) {
+            return this;
+        }
+        Map<String, Integer> counts = new HashMap<>(terms.length + delta.size());
+        for (int i = 0; i < terms.length; i++) {
+            counts.put(terms[i], frequencies[i]);
+        }
+        delta.forEach((term, frequency) -> counts.merge(term, frequency, Integer::sum));
+        return of(counts, maxTerms);
+    }
+
+    /**
+     * Самые частые термины, начинающиеся с {@code prefix} (по убыванию частоты).
+     */
+    public List<Entry> suggest(String prefix, int limit) {
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+
+        PriorityQueue<Entry> top = new PriorityQueue<>(limit + 1, BY_FREQUENCY);
+        for (int i = from; i < to; i++) {
+            if (top.size() < limit || frequencies[i] > top.peek().frequency()) {
+                top.add(new Entry(terms[i], frequencies[i]));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+
+        Entry[] result = top.toArray(new Entry[0]);
+        Arrays.sort(result, BY_FREQUENCY.reversed());
+        return List.of(result);
+    }
+
+    public boolean contains(String term) {
+        return Arrays.binarySearch(terms, term) >= 0;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    private int lowerBound(String key) {
+        int index = Arrays.binarySearch(terms, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Термин и число документов (фрагментов текста и версий), в которых он встречается.
+     */
+    public record Entry(String term, int frequency) { }
+}
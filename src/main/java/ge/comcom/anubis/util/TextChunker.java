@@ -0,0 +1,59 @@
+package ge.comcom.anubis.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбиение длинного текста на фрагменты для binary_text_chunk.
+ * <p>
+ * Фрагмент не длиннее {@code maxChars}; граница ищется во второй половине окна: сначала разрыв
+ * страницы ({@code \f}), затем пустая строка, затем любой пробельный символ, и только в крайнем
+ * случае слово режется.
+ */
+@UtilityClass
+public class TextChunker {
+
+    public static final char PAGE_BREAK = '\f';
+
+    public List<String> split(String text, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+        int limit = Math.max(1, maxChars);
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + limit);
+            if (end < text.length()) {
+                end = breakPoint(text, start, end);
+            }
+            String chunk = text.substring(start, end).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            start = end;
+        }
+        return chunks;
+    }
+
+    private int breakPoint(String text, int start, int end) {
+        int min = start + (end - start) / 2;
+
+        int pageBreak = text.lastIndexOf(PAGE_BREAK, end - 1);
+        if (pageBreak >= min) {
+            return pageBreak + 1;
+        }
+        int paragraph = text.lastIndexOf("\n\n", end - 2);
+        if (paragraph >= min) {
+            return paragraph + 2;
+        }
+        for (int i = end - 1; i >= min; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,37 @@
+-- ===============================================
+-- 🧩 V17
+-- Durable queue for full-text indexing jobs.
+-- Workers claim rows with SELECT ... FOR UPDATE SKIP LOCKED.
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS index_job (
+                                         job_id        BIGSERIAL PRIMARY KEY,
+                                         file_id       BIGINT NOT NULL REFERENCES object_file(file_id) ON DELETE CASCADE,
+                                         priority      SMALLINT NOT NULL DEFAULT 0,
+                                         status        VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+                                         attempts      INT NOT NULL DEFAULT 0,
+                                         run_after     TIMESTAMPTZ NOT NULL DEFAULT now(),
+                                         locked_until  TIMESTAMPTZ,
+                                         last_error    TEXT,
+                                         created_at    TIMESTAMPTZ NOT NULL DEFAULT now(),
+                                         CONSTRAINT chk_index_job_status CHECK (status IN ('PENDING', 'RUNNING', 'DEAD'))
+);
+
+COMMENT ON TABLE index_job IS
+    'Full-text indexing queue. Finished jobs are deleted, exhausted ones stay as DEAD.';
+COMMENT ON COLUMN index_job.file_id IS 'FK to object_file. Example: 501.';
+COMMENT ON COLUMN index_job.priority IS 'Higher runs first. Example: 10 = interactive upload, 0 = bulk reindex.';
+COMMENT ON COLUMN index_job.status IS 'PENDING / RUNNING / DEAD (dead-letter).';
+COMMENT ON COLUMN index_job.attempts IS 'Number of started attempts.';
+COMMENT ON COLUMN index_job.run_after IS 'Not picked up before this time (retry backoff).';
+COMMENT ON COLUMN index_job.locked_until IS 'Lease of a RUNNING job; expired leases are picked up again.';
+COMMENT ON COLUMN index_job.last_error IS 'Error message of the last failed attempt.';
+
+-- Один ожидающий job на файл: повторная постановка только повышает приоритет
+CREATE UNIQUE INDEX IF NOT EXISTS uq_index_job_pending_file
+    ON index_job (file_id)
+    WHERE status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_index_job_claim
+    ON index_job (priority DESC, run_after, job_id)
+    WHERE status IN ('PENDING', 'RUNNING');
@@ -0,0 +1,37 @@
+-- ===============================================
+-- 🧩 V18
+-- Checkpoint of a bulk reindex: object_file is walked by file_id (keyset),
+-- so an interrupted run resumes from checkpoint_file_id after restart.
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS reindex_run (
+                                           run_id              BIGSERIAL PRIMARY KEY,
+                                           mode                VARCHAR(16) NOT NULL,
+                                           status              VARCHAR(16) NOT NULL DEFAULT 'RUNNING',
+                                           checkpoint_file_id  BIGINT NOT NULL DEFAULT 0,
+                                           total               BIGINT NOT NULL DEFAULT 0,
+                                           processed           BIGINT NOT NULL DEFAULT 0,
+                                           started_at          TIMESTAMPTZ NOT NULL DEFAULT now(),
+                                           updated_at          TIMESTAMPTZ NOT NULL DEFAULT now(),
+                                           finished_at         TIMESTAMPTZ,
+                                           owner               VARCHAR(128),
+                                           heartbeat_at        TIMESTAMPTZ NOT NULL DEFAULT now(),
+                                           CONSTRAINT chk_reindex_run_mode CHECK (mode IN ('ALL', 'OCR', 'MISSING')),
+                                           CONSTRAINT chk_reindex_run_status CHECK (status IN ('RUNNING', 'FINISHED', 'CANCELLED', 'FAILED'))
+);
+
+COMMENT ON TABLE reindex_run IS 'Bulk reindex runs. At most one RUNNING row at a time.';
+COMMENT ON COLUMN reindex_run.mode IS 'ALL = every file, OCR = image/PDF files, MISSING = versions without search text.';
+COMMENT ON COLUMN reindex_run.checkpoint_file_id IS 'All files with file_id <= checkpoint have been processed. Example: 120500.';
+COMMENT ON COLUMN reindex_run.total IS 'Number of matching files counted at start.';
+COMMENT ON COLUMN reindex_run.processed IS 'Files processed up to the checkpoint.';
+COMMENT ON COLUMN reindex_run.owner IS 'Application instance driving the RUNNING run; NULL = free to resume.';
+COMMENT ON COLUMN reindex_run.heartbeat_at IS 'Last sign of life of the owner; an expired heartbeat lets another instance take the run over.';
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_reindex_run_running
+    ON reindex_run ((status))
+    WHERE status = 'RUNNING';
+
+-- Проверка завершения страницы: есть ли ещё задачи для диапазона file_id
+CREATE INDEX IF NOT EXISTS idx_index_job_file
+    ON index_job (file_id);
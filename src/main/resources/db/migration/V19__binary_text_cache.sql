@@ -0,0 +1,39 @@
+-- ===============================================
+-- 🧩 V19
+-- Extracted text per binary content (sha256): the same binary attached
+-- to another version or object is not sent to OCR again.
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS binary_text (
+                                           sha256               VARCHAR(128) PRIMARY KEY,
+                                           extracted_text_raw   TEXT NOT NULL,
+                                           detected_language    VARCHAR(32),
+                                           language_confidence  DOUBLE PRECISION,
+                                           extracted_at         TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+COMMENT ON TABLE binary_text IS 'Text extracted (Tika/OCR) from a binary, keyed by file_binary.sha256.';
+COMMENT ON COLUMN binary_text.extracted_at IS 'Time of the OCR call that produced the text.';
+
+-- Заполняем из уже проиндексированных версий с единственным файлом
+INSERT INTO binary_text (sha256, extracted_text_raw, detected_language, language_confidence, extracted_at)
+SELECT DISTINCT ON (b.sha256)
+       b.sha256, c.extracted_text_raw, c.detected_language, c.language_confidence, coalesce(c.updated_at, now())
+FROM search_text_cache c
+         JOIN object_file f ON f.object_version_id = c.object_version_id
+         JOIN file_binary b ON b.binary_id = f.binary_id
+WHERE b.sha256 IS NOT NULL
+  AND c.extracted_text_raw IS NOT NULL
+  AND (SELECT COUNT(*) FROM object_file f2 WHERE f2.object_version_id = c.object_version_id) = 1
+ORDER BY b.sha256, c.updated_at DESC
+ON CONFLICT (sha256) DO NOTHING;
+
+-- Принудительное повторное OCR (например, после обновления моделей)
+ALTER TABLE index_job
+    ADD COLUMN IF NOT EXISTS force_ocr BOOLEAN NOT NULL DEFAULT FALSE;
+
+ALTER TABLE reindex_run
+    ADD COLUMN IF NOT EXISTS force_ocr BOOLEAN NOT NULL DEFAULT FALSE;
+
+COMMENT ON COLUMN index_job.force_ocr IS 'TRUE = ignore binary_text and run OCR again.';
+COMMENT ON COLUMN reindex_run.force_ocr IS 'TRUE = jobs of this run ignore binary_text.';
@@ -0,0 +1,17 @@
+-- ===============================================
+-- 🧩 V20
+-- Full-text search over binary_text: a version is found through the files
+-- visible in it (object_file), so new versions that keep the same files
+-- need no re-extraction. Search vectors are built per chunk of the text
+-- (V22), not over the whole document.
+-- ===============================================
+
+-- binary_text → file_binary → object_file
+CREATE INDEX IF NOT EXISTS idx_file_binary_sha256
+    ON file_binary (sha256);
+
+CREATE INDEX IF NOT EXISTS idx_object_file_binary_version
+    ON object_file (binary_id, object_version_id);
+
+COMMENT ON TABLE search_text_cache IS
+    'Legacy per-version text, no longer written. Search uses binary_text joined through object_file.';
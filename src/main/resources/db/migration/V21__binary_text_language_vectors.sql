@@ -0,0 +1,24 @@
+-- ===============================================
+-- 🧩 V21
+-- Language-aware FTS: vectors are built with the text search
+-- configuration of the detected language (stemming for English and
+-- Russian); Georgian and other languages, which have no stemmer in
+-- PostgreSQL, stay on 'simple'.
+-- Codes must match ge.comcom.anubis.enums.FtsLanguage.
+-- ===============================================
+
+-- IMMUTABLE: используется в генерируемых столбцах (V22)
+CREATE OR REPLACE FUNCTION fts_language(detected_language varchar)
+    RETURNS varchar
+    LANGUAGE sql
+    IMMUTABLE
+    PARALLEL SAFE
+AS $$
+    SELECT CASE
+               WHEN detected_language IN ('en', 'ru') THEN detected_language
+               ELSE 'simple'
+           END
+$$;
+
+COMMENT ON FUNCTION fts_language(varchar) IS
+    'Text search configuration for a detected language: en (english), ru (russian) or simple.';
@@ -0,0 +1,55 @@
+-- ===============================================
+-- 🧩 V22
+-- Extracted text is searched in chunks (pages or ~16K-character windows):
+-- every chunk has its own vector, so huge OCR output stays below the
+-- tsvector size limit and ts_headline only reads the matching chunk.
+-- binary_text keeps the full text for reuse and has no vector of its own.
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS binary_text_chunk (
+                                                 sha256             VARCHAR(128) NOT NULL REFERENCES binary_text (sha256) ON DELETE CASCADE,
+                                                 chunk_no           INTEGER      NOT NULL,
+                                                 chunk_text         TEXT         NOT NULL,
+                                                 detected_language  VARCHAR(32),
+                                                 PRIMARY KEY (sha256, chunk_no)
+);
+
+-- Схема языков из V21 (ge.comcom.anubis.enums.FtsLanguage)
+ALTER TABLE binary_text_chunk
+    ADD COLUMN fts_language varchar(16)
+        GENERATED ALWAYS AS (fts_language(detected_language)) STORED;
+
+ALTER TABLE binary_text_chunk
+    ADD COLUMN chunk_vector tsvector
+        GENERATED ALWAYS AS (
+            CASE detected_language
+                WHEN 'en' THEN to_tsvector('english', chunk_text)
+                WHEN 'ru' THEN to_tsvector('russian', chunk_text)
+                ELSE to_tsvector('simple', chunk_text)
+            END
+        ) STORED;
+
+-- Перенос: окна по 16000 символов (новые тексты режутся по страницам и абзацам)
+INSERT INTO binary_text_chunk (sha256, chunk_no, chunk_text, detected_language)
+SELECT t.sha256, g.n, substr(t.extracted_text_raw, g.n * 16000 + 1, 16000), t.detected_language
+FROM binary_text t
+         CROSS JOIN LATERAL generate_series(0, greatest(length(t.extracted_text_raw) - 1, 0) / 16000) AS g(n)
+WHERE length(t.extracted_text_raw) > 0
+ON CONFLICT DO NOTHING;
+
+CREATE INDEX IF NOT EXISTS idx_binary_text_chunk_fts_en
+    ON binary_text_chunk USING gin (chunk_vector)
+    WITH (fastupdate = on)
+    WHERE fts_language = 'en';
+
+CREATE INDEX IF NOT EXISTS idx_binary_text_chunk_fts_ru
+    ON binary_text_chunk USING gin (chunk_vector)
+    WITH (fastupdate = on)
+    WHERE fts_language = 'ru';
+
+CREATE INDEX IF NOT EXISTS idx_binary_text_chunk_fts_simple
+    ON binary_text_chunk USING gin (chunk_vector)
+    WITH (fastupdate = on)
+    WHERE fts_language = 'simple';
+
+COMMENT ON TABLE binary_text_chunk IS 'Chunks of binary_text.extracted_text_raw with per-language search vectors.';
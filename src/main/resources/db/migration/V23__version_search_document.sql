@@ -0,0 +1,63 @@
+-- ===============================================
+-- 🧩 V23
+-- Search document of a version: property values (weight B). The object
+-- name is matched against "object" at query time (weight A) so a rename
+-- does not rewrite the documents of every version. File content stays in
+-- binary_text_chunk and is ranked as weight C at query time.
+-- Kept up to date by SearchDocumentService before each commit.
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS version_search_document (
+                                                       version_id       INT PRIMARY KEY REFERENCES object_version (version_id) ON DELETE CASCADE,
+                                                       object_id        INT NOT NULL REFERENCES "object" (object_id) ON DELETE CASCADE,
+                                                       properties_text  TEXT,
+                                                       document         tsvector NOT NULL,
+                                                       updated_at       TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+COMMENT ON TABLE version_search_document IS 'Property values search vector per version (weight B); the object name is matched at query time.';
+COMMENT ON COLUMN version_search_document.properties_text IS 'Text of TEXT values, value-list items and lookup names; used for snippets.';
+
+-- Заполнение для существующих версий (тот же запрос, что в SearchDocumentService)
+INSERT INTO version_search_document (version_id, object_id, properties_text, document)
+SELECT v.version_id,
+       v.object_id,
+       p.props,
+       setweight(to_tsvector('simple', coalesce(p.props, '')), 'B')
+FROM object_version v
+         LEFT JOIN LATERAL (
+    SELECT string_agg(x.txt, ' ') AS props
+    FROM (
+             SELECT pv.value_text AS txt
+             FROM property_value pv
+             WHERE pv.object_version_id = v.version_id AND pv.value_text IS NOT NULL
+             UNION ALL
+             SELECT li.value_text
+             FROM property_value pv
+                      JOIN value_list_item li ON li.item_id = pv.value_list_item_id
+             WHERE pv.object_version_id = v.version_id
+             UNION ALL
+             SELECT li.value_text
+             FROM property_value pv
+                      JOIN property_value_multi m ON m.property_value_id = pv.property_value_id
+                      JOIN value_list_item li ON li.item_id = m.value_list_item_id
+             WHERE pv.object_version_id = v.version_id
+             UNION ALL
+             SELECT r.name
+             FROM property_value pv
+                      JOIN "object" r ON r.object_id = pv.ref_object_id
+             WHERE pv.object_version_id = v.version_id
+         ) x
+    ) p ON TRUE
+ON CONFLICT (version_id) DO NOTHING;
+
+CREATE INDEX IF NOT EXISTS idx_version_search_document_fts
+    ON version_search_document USING gin (document)
+    WITH (fastupdate = on);
+
+CREATE INDEX IF NOT EXISTS idx_version_search_document_object
+    ON version_search_document (object_id);
+
+-- Имя объекта ищется по этому выражению (FullTextSearchService.METADATA_HITS)
+CREATE INDEX IF NOT EXISTS idx_object_name_fts
+    ON "object" USING gin (to_tsvector('simple', coalesce(name, '')));
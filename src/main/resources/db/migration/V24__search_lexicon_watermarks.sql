@@ -0,0 +1,19 @@
+-- ===============================================
+-- 🧩 V24
+-- Autocomplete lexicon (SearchLexiconService) is refreshed incrementally:
+-- only chunks and search documents written after the previous refresh
+-- are passed through ts_stat.
+-- ===============================================
+
+ALTER TABLE binary_text_chunk
+    ADD COLUMN IF NOT EXISTS indexed_at TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp();
+
+-- clock_timestamp(), а не now(): индексация с OCR держит транзакцию минутами, и время её начала
+-- оказалось бы намного раньше границы обновления словаря, прошедшего за это время
+COMMENT ON COLUMN binary_text_chunk.indexed_at IS 'Time the chunk was written (not the transaction start); chunks are rewritten together with binary_text.';
+
+CREATE INDEX IF NOT EXISTS idx_binary_text_chunk_indexed_at
+    ON binary_text_chunk (indexed_at);
+
+CREATE INDEX IF NOT EXISTS idx_version_search_document_updated_at
+    ON version_search_document (updated_at);
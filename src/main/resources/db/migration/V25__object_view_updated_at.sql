@@ -0,0 +1,11 @@
+-- ===============================================
+-- 🧩 V25
+-- Compiled view queries (ObjectViewExecutionService) are cached per view,
+-- evicted when the view is changed on the same instance and re-checked
+-- against updated_at periodically for changes made on other instances.
+-- ===============================================
+
+ALTER TABLE object_view
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+COMMENT ON COLUMN object_view.updated_at IS 'Time of the last change to the view definition (filter, groupings, sort).';
@@ -0,0 +1,37 @@
+-- ===============================================
+-- 🧩 V26
+-- Pointers to the first and the current (latest) version of an object.
+-- Maintained by ObjectVersionService when versions are created or deleted;
+-- saved views read current versions through current_version_id instead of
+-- scanning the whole version history.
+-- ===============================================
+
+ALTER TABLE "object"
+    ADD COLUMN IF NOT EXISTS current_version_id INT
+        CONSTRAINT object_current_version_id_fkey REFERENCES object_version (version_id) ON DELETE SET NULL,
+    ADD COLUMN IF NOT EXISTS first_version_id INT
+        CONSTRAINT object_first_version_id_fkey REFERENCES object_version (version_id) ON DELETE SET NULL;
+
+COMMENT ON COLUMN "object".current_version_id IS 'Latest version (highest version_num). Example: 2003.';
+COMMENT ON COLUMN "object".first_version_id IS 'First version (lowest version_num); its author and time are the object''s creation. Example: 2001.';
+
+UPDATE "object" o
+SET current_version_id = (SELECT v.version_id FROM object_version v
+                          WHERE v.object_id = o.object_id
+                          ORDER BY v.version_num DESC LIMIT 1),
+    first_version_id = (SELECT v.version_id FROM object_version v
+                        WHERE v.object_id = o.object_id
+                        ORDER BY v.version_num ASC LIMIT 1);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_object_current_version
+    ON "object" (current_version_id);
+
+-- ON DELETE SET NULL ищет ссылающиеся строки при каждом удалении версии
+CREATE UNIQUE INDEX IF NOT EXISTS idx_object_first_version
+    ON "object" (first_version_id);
+
+-- Saved views read current versions unless the view asks for the whole history
+ALTER TABLE object_view
+    ADD COLUMN IF NOT EXISTS all_versions BOOLEAN NOT NULL DEFAULT FALSE;
+
+COMMENT ON COLUMN object_view.all_versions IS 'TRUE: the view matches every version of an object, FALSE: only the current one.';
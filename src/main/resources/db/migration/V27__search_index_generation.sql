@@ -0,0 +1,11 @@
+-- ===============================================
+-- 🧩 V27
+-- Shared generation of the full-text index. Every instance bumps it after
+-- committing a write to the index and polls last_value to drop its own
+-- cached FTS results (FullTextQueryCache) and dependent view results.
+-- A sequence is used because nextval takes no row lock and is not rolled back.
+-- ===============================================
+
+CREATE SEQUENCE IF NOT EXISTS search_index_generation_seq;
+
+COMMENT ON SEQUENCE search_index_generation_seq IS 'Bumped after each committed FTS index write; instances compare last_value to invalidate their caches.';
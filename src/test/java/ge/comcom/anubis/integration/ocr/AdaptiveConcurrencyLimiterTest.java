@@ -0,0 +1,125 @@
+package ge.comcom.anubis.integration.ocr;
+
+import ge.comcom.anubis.config.OcrProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final OcrProperties properties = new OcrProperties();
+    private final AtomicLong nanos = new AtomicLong();
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties.getConcurrency().setInitialLimit(4);
+        properties.getConcurrency().setMinLimit(1);
+        properties.getConcurrency().setMaxLimit(8);
+        limiter = new AdaptiveConcurrencyLimiter(properties, new SimpleMeterRegistry());
+        limiter.setTicker(nanos::get);
+        limiter.init();
+    }
+
+    @Test
+    void requestsAboveTheLimitWaitForARelease() {
+        properties.getConcurrency().setInitialLimit(1);
+        limiter.init();
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().block();
+
+        AtomicReference<AdaptiveConcurrencyLimiter.Permit> second = new AtomicReference<>();
+        limiter.acquire().subscribe(second::set);
+        assertThat(second.get()).isNull();
+        assertThat(limiter.getQueued()).isEqualTo(1);
+
+        first.ignore();
+
+        assertThat(second.get()).isNotNull();
+        assertThat(limiter.getQueued()).isZero();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueue() {
+        properties.getConcurrency().setInitialLimit(1);
+        limiter.init();
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().block();
+
+        Disposable waiting = limiter.acquire().subscribe();
+        waiting.dispose();
+
+        assertThat(limiter.getQueued()).isZero();
+        first.ignore();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void permitIsReleasedOnlyOnce() {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire().block();
+
+        permit.ignore();
+        permit.ignore();
+
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void droppedRequestBacksOffMultiplicatively() {
+        limiter.acquire().block().dropped();
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void limitStaysWithinBounds() {
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire().block().dropped();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void busyLimitGrowsOnFastResponses() {
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().block();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire().block();
+
+        // Второй запрос начат при двух одновременных из четырёх: лимит использовался
+        second.success();
+        first.ignore();
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void largeDocumentIsNotMistakenForCongestion() {
+        complete(256 * 1024, 20);
+
+        // В три раза дольше, но в 256 раз больше: задержка на байт ниже базовой
+        complete(64L * 1024 * 1024, 60);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void slowerResponseForTheSameSizeDecreasesTheLimit() {
+        complete(256 * 1024, 20);
+
+        complete(256 * 1024, 100);
+
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    private void complete(long bytes, long millis) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire().block();
+        permit.sent(bytes);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        permit.success();
+    }
+}
@@ -0,0 +1,73 @@
+package ge.comcom.anubis.service.core;
+
+import ge.comcom.anubis.config.SearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FullTextQueryCacheTest {
+
+    private final SearchProperties properties = new SearchProperties();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private FullTextQueryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FullTextQueryCache(properties, new SimpleMeterRegistry(), mock(PlatformTransactionManager.class));
+        cache.init();
+    }
+
+    @Test
+    void sameNormalizedQueryIsServedFromCache() {
+        cache.get("plainto_tsquery/CONTENT", "Договор  поставки", loader(1, 2));
+        RoaringBitmap cached = cache.get("plainto_tsquery/CONTENT", " договор поставки ", loader(1, 2));
+
+        assertThat(loads).hasValue(1);
+        assertThat(cached.toArray()).containsExactly(1, 2);
+    }
+
+    @Test
+    void functionAndScopeArePartOfTheKey() {
+        cache.get("plainto_tsquery/CONTENT", "договор", loader(1));
+        cache.get("plainto_tsquery/ALL", "договор", loader(1, 2));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void callerGetsACopy() {
+        RoaringBitmap loaded = cache.get("plainto_tsquery/CONTENT", "договор", loader(1, 2));
+        loaded.add(99);
+        RoaringBitmap hit = cache.get("plainto_tsquery/CONTENT", "договор", loader(1, 2));
+        hit.remove(1);
+
+        assertThat(cache.get("plainto_tsquery/CONTENT", "договор", loader(1, 2)).toArray()).containsExactly(1, 2);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        properties.getQueryCache().setEnabled(false);
+
+        cache.get("plainto_tsquery/CONTENT", "договор", loader(1));
+        cache.get("plainto_tsquery/CONTENT", "договор", loader(1));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private Supplier<RoaringBitmap> loader(int... versionIds) {
+        return () -> {
+            loads.incrementAndGet();
+            return RoaringBitmap.bitmapOf(versionIds);
+        };
+    }
+}
@@ -0,0 +1,201 @@
+package ge.comcom.anubis.service.view;
+
+import ge.comcom.anubis.config.ViewExecutionProperties;
+import ge.comcom.anubis.service.core.FullTextQueryCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ViewResultCacheTest {
+
+    private static final ViewResultCache.Dependencies BY_VALUES =
+            new ViewResultCache.Dependencies(Set.of(10L), false, false, false);
+    private static final ViewResultCache.Dependencies WITH_LINKS =
+            new ViewResultCache.Dependencies(Set.of(20L), true, true, false);
+    private static final ViewResultCache.Dependencies FULL_TEXT =
+            new ViewResultCache.Dependencies(Set.of(10L), false, false, true);
+
+    private final ViewExecutionProperties properties = new ViewExecutionProperties();
+    private final FullTextQueryCache fullTextQueryCache = mock(FullTextQueryCache.class);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ViewResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ViewResultCache(properties, fullTextQueryCache, new SimpleMeterRegistry());
+        cache.init();
+    }
+
+    @Test
+    void secondGetIsServedFromCache() {
+        ViewResultCache.Key key = key(1);
+
+        cache.get(key, BY_VALUES, 7L, loader(1, 2, 3));
+        RoaringBitmap cached = cache.get(key, BY_VALUES, 7L, loader(1, 2, 3));
+
+        assertThat(loads).hasValue(1);
+        assertThat(cached.toArray()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void versionsChangedDropsOnlyEntriesThatDependOnTheProperty() {
+        cache.get(key(1), BY_VALUES, 7L, loader(1));
+        cache.get(key(2), new ViewResultCache.Dependencies(Set.of(11L), false, false, false), 7L, loader(2));
+
+        cache.versionsChanged(List.of(10L));
+
+        assertThat(cache.getIfPresent(key(1), 7L)).isNull();
+        assertThat(cache.getIfPresent(key(2), 7L)).isNotNull();
+    }
+
+    @Test
+    void versionsChangedDropsValueIndependentEntries() {
+        cache.get(key(1), WITH_LINKS, 7L, loader(1));
+
+        cache.versionsChanged(List.of(99L));
+
+        assertThat(cache.getIfPresent(key(1), 7L)).isNull();
+    }
+
+    @Test
+    void linksChangedDropsOnlyEntriesThatCheckLinks() {
+        cache.get(key(1), BY_VALUES, 7L, loader(1));
+        cache.get(key(2), WITH_LINKS, 7L, loader(2));
+
+        cache.linksChanged();
+
+        assertThat(cache.getIfPresent(key(1), 7L)).isNotNull();
+        assertThat(cache.getIfPresent(key(2), 7L)).isNull();
+    }
+
+    @Test
+    void resultLoadedWhileDataChangedIsNotStored() {
+        ViewResultCache.Key key = key(1);
+
+        RoaringBitmap result = cache.get(key, BY_VALUES, 7L, () -> {
+            // Изменение данных во время запроса представления
+            cache.versionsChanged(List.of(10L));
+            return RoaringBitmap.bitmapOf(1);
+        });
+
+        assertThat(result.toArray()).containsExactly(1);
+        assertThat(cache.getIfPresent(key, 7L)).isNull();
+        assertThat(cache.getTotalBytes()).isZero();
+    }
+
+    @Test
+    void fullTextEntryIsDroppedWhenIndexGenerationChanges() {
+        when(fullTextQueryCache.getGeneration()).thenReturn(1L);
+        cache.get(key(1), FULL_TEXT, 7L, loader(1));
+        assertThat(cache.getIfPresent(key(1), 7L)).isNotNull();
+
+        when(fullTextQueryCache.getGeneration()).thenReturn(2L);
+
+        assertThat(cache.getIfPresent(key(1), 7L)).isNull();
+        assertThat(cache.getTotalBytes()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedByCount() {
+        properties.getResultCache().setMaxEntries(2);
+        cache.get(key(1), BY_VALUES, 7L, loader(1));
+        cache.get(key(2), BY_VALUES, 7L, loader(2));
+        cache.getIfPresent(key(1), 7L);
+
+        cache.get(key(3), BY_VALUES, 7L, loader(3));
+
+        assertThat(cache.getIfPresent(key(1), 7L)).isNotNull();
+        assertThat(cache.getIfPresent(key(2), 7L)).isNull();
+        assertThat(cache.getIfPresent(key(3), 7L)).isNotNull();
+    }
+
+    @Test
+    void entriesAreEvictedBySize() {
+        long entryBytes = optimized(1).getSizeInBytes();
+        properties.getResultCache().setMaxSize(DataSize.ofBytes(entryBytes * 2 + entryBytes / 2));
+        cache.get(key(1), BY_VALUES, 7L, loader(1));
+        cache.get(key(2), BY_VALUES, 7L, loader(2));
+
+        cache.get(key(3), BY_VALUES, 7L, loader(3));
+
+        assertThat(cache.getIfPresent(key(1), 7L)).isNull();
+        assertThat(cache.getTotalBytes()).isEqualTo(entryBytes * 2);
+    }
+
+    @Test
+    void resultLargerThanCacheIsNotStored() {
+        properties.getResultCache().setMaxSize(DataSize.ofBytes(1));
+
+        cache.get(key(1), BY_VALUES, 7L, loader(1, 2, 3));
+
+        assertThat(cache.getIfPresent(key(1), 7L)).isNull();
+        assertThat(cache.getTotalBytes()).isZero();
+    }
+
+    @Test
+    void popularMissingOrdersByUsageAndDecaysCounters() {
+        for (int i = 0; i < 4; i++) {
+            cache.getIfPresent(key(1), 7L);
+        }
+        cache.getIfPresent(key(2), 8L);
+        cache.get(key(3), BY_VALUES, 9L, loader(3));
+
+        List<Map.Entry<ViewResultCache.Key, Long>> missing = cache.popularMissing(10);
+
+        // key(3) в кэше; счётчик key(2) после деления пополам обнулился
+        assertThat(missing).extracting(Map.Entry::getKey).containsExactly(key(1), key(2));
+        assertThat(missing.get(0).getValue()).isEqualTo(7L);
+        assertThat(cache.popularMissing(10)).extracting(Map.Entry::getKey).containsExactly(key(1));
+    }
+
+    @Test
+    void warmDoesNotCountAsUsage() {
+        cache.warm(key(1), BY_VALUES, loader(1));
+        cache.warm(key(1), BY_VALUES, loader(1));
+        cache.versionsChanged(List.of(10L));
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.popularMissing(10)).isEmpty();
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        properties.getResultCache().setEnabled(false);
+
+        cache.get(key(1), BY_VALUES, 7L, loader(1));
+        cache.get(key(1), BY_VALUES, 7L, loader(1));
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getIfPresent(key(1), 7L)).isNull();
+    }
+
+    private static ViewResultCache.Key key(long viewId) {
+        return new ViewResultCache.Key(viewId, "hash", List.of(1L, 2L));
+    }
+
+    private Supplier<RoaringBitmap> loader(int... versionIds) {
+        return () -> {
+            loads.incrementAndGet();
+            return RoaringBitmap.bitmapOf(versionIds);
+        };
+    }
+
+    private static RoaringBitmap optimized(int... versionIds) {
+        RoaringBitmap bitmap = RoaringBitmap.bitmapOf(versionIds);
+        bitmap.runOptimize();
+        return bitmap;
+    }
+}
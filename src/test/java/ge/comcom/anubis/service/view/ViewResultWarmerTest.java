@@ -0,0 +1,46 @@
+package ge.comcom.anubis.service.view;
+
+import ge.comcom.anubis.config.ViewExecutionProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ViewResultWarmerTest {
+
+    private final ViewExecutionProperties properties = new ViewExecutionProperties();
+    private final ViewResultCache resultCache = mock(ViewResultCache.class);
+    private final ObjectViewExecutionService executionService = mock(ObjectViewExecutionService.class);
+    private final ViewResultWarmer warmer = new ViewResultWarmer(properties, resultCache, executionService);
+
+    @Test
+    void warmsPopularMissingKeysForTheirLastUser() {
+        properties.getResultCache().setWarmTop(5);
+        when(resultCache.popularMissing(5)).thenReturn(List.of(
+                Map.entry(new ViewResultCache.Key(1L, "a", List.of()), 7L),
+                Map.entry(new ViewResultCache.Key(2L, "b", List.of()), 8L)));
+
+        warmer.warm();
+
+        verify(executionService).warm(1L, 7L);
+        verify(executionService).warm(2L, 8L);
+    }
+
+    @Test
+    void failureOfOneViewDoesNotStopTheOthers() {
+        properties.getResultCache().setWarmTop(5);
+        when(resultCache.popularMissing(5)).thenReturn(List.of(
+                Map.entry(new ViewResultCache.Key(1L, "a", List.of()), 7L),
+                Map.entry(new ViewResultCache.Key(2L, "b", List.of()), 8L)));
+        doThrow(new IllegalArgumentException("View not found: 1")).when(executionService).warm(1L, 7L);
+
+        warmer.warm();
+
+        verify(executionService).warm(2L, 8L);
+    }
+}
@@ -0,0 +1,84 @@
+package ge.comcom.anubis.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class PrefixLexiconTest {
+
+    private final PrefixLexicon lexicon = PrefixLexicon.of(Map.of(
+            "document", 5,
+            "documents", 9,
+            "docker", 2,
+            "dog", 7,
+            "დოკუმენტი", 4,
+            "документ", 3), 100);
+
+    @Test
+    void suggestsTermsWithPrefixByFrequency() {
+        assertThat(lexicon.suggest("doc", 10))
+                .extracting(PrefixLexicon.Entry::term)
+                .containsExactly("documents", "document", "docker");
+    }
+
+    @Test
+    void suggestionsAreLimited() {
+        assertThat(lexicon.suggest("do", 2))
+                .extracting(PrefixLexicon.Entry::term)
+                .containsExactly("documents", "dog");
+    }
+
+    @Test
+    void equalFrequenciesAreOrderedByTerm() {
+        PrefixLexicon tied = PrefixLexicon.of(Map.of("beta", 1, "alpha", 1, "alps", 1), 10);
+
+        assertThat(tied.suggest("al", 10))
+                .extracting(PrefixLexicon.Entry::term)
+                .containsExactly("alpha", "alps");
+    }
+
+    @Test
+    void nonLatinPrefixes() {
+        assertThat(lexicon.suggest("დოკ", 10)).containsExactly(new PrefixLexicon.Entry("დოკუმენტი", 4));
+        assertThat(lexicon.suggest("док", 10)).containsExactly(new PrefixLexicon.Entry("документ", 3));
+    }
+
+    @Test
+    void emptyPrefixOrLimitSuggestsNothing() {
+        assertThat(lexicon.suggest("", 10)).isEmpty();
+        assertThat(lexicon.suggest("doc", 0)).isEmpty();
+        assertThat(lexicon.suggest("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    void ofKeepsMostFrequentTerms() {
+        PrefixLexicon top = PrefixLexicon.of(Map.of("a1", 1, "a2", 2, "a3", 3), 2);
+
+        assertThat(top.size()).isEqualTo(2);
+        assertThat(top.contains("a1")).isFalse();
+        assertThat(top.contains("a3")).isTrue();
+    }
+
+    @Test
+    void mergeAddsFrequenciesAndNewTerms() {
+        PrefixLexicon merged = lexicon.merge(Map.of("docker", 10, "docx", 1), 100);
+
+        assertThat(merged.suggest("doc", 10))
+                .extracting(PrefixLexicon.Entry::term, PrefixLexicon.Entry::frequency)
+                .containsExactly(
+                        tuple("docker", 12),
+                        tuple("documents", 9),
+                        tuple("document", 5),
+                        tuple("docx", 1));
+        // Исходный словарь не меняется
+        assertThat(lexicon.contains("docx")).isFalse();
+    }
+
+    @Test
+    void mergeWithEmptyDeltaReturnsSameInstance() {
+        assertThat(lexicon.merge(Map.of(), 100)).isSameAs(lexicon);
+    }
+}
@@ -0,0 +1,68 @@
+package ge.comcom.anubis.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextChunkerTest {
+
+    @Test
+    void blankTextHasNoChunks() {
+        assertThat(TextChunker.split(null, 10)).isEmpty();
+        assertThat(TextChunker.split("  \n ", 10)).isEmpty();
+    }
+
+    @Test
+    void shortTextIsOneTrimmedChunk() {
+        assertThat(TextChunker.split("  short text \n", 100)).containsExactly("short text");
+    }
+
+    @Test
+    void splitsAtPageBreakFirst() {
+        assertThat(TextChunker.split("aa bb\fcc dd", 8)).containsExactly("aa bb", "cc dd");
+    }
+
+    @Test
+    void splitsAtParagraphBeforeWord() {
+        assertThat(TextChunker.split("aaaa\n\nbbbb cc", 8)).containsExactly("aaaa", "bbbb cc");
+    }
+
+    @Test
+    void splitsAtWhitespace() {
+        assertThat(TextChunker.split("alpha beta gamma", 12)).containsExactly("alpha beta", "gamma");
+    }
+
+    @Test
+    void breakBeforeTheSecondHalfOfTheWindowIsIgnored() {
+        // Разрыв страницы слишком рано: режем по пробелу ближе к концу окна
+        assertThat(TextChunker.split("a\fbbb ccc dddd", 10)).containsExactly("a\fbbb ccc", "dddd");
+    }
+
+    @Test
+    void wordLongerThanTheWindowIsCut() {
+        assertThat(TextChunker.split("abcdefghij", 4)).containsExactly("abcd", "efgh", "ij");
+    }
+
+    @Test
+    void chunksFitTheWindowAndKeepAllText() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        String[] separators = {" ", " ", " ", "\n", "\n\n", "\f"};
+        for (int i = 0; i < 2000; i++) {
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append(separators[random.nextInt(separators.length)]);
+        }
+
+        List<String> chunks = TextChunker.split(text.toString(), 100);
+
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(100).isNotBlank());
+        assertThat(String.join("", chunks).replaceAll("\\s", ""))
+                .isEqualTo(text.toString().replaceAll("\\s", ""));
+    }
+}